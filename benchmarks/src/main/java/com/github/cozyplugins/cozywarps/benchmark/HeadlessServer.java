@@ -0,0 +1,124 @@
+/*
+ * CozyWarps - Used to create player warps.
+ * Copyright (C) 2024 CozyPlugins
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.github.cozyplugins.cozywarps.benchmark;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Server;
+import org.bukkit.World;
+import org.bukkit.plugin.Plugin;
+import org.jetbrains.annotations.NotNull;
+
+import java.lang.reflect.Proxy;
+import java.util.UUID;
+import java.util.logging.Logger;
+
+/**
+ * Represents a stand in server, so the warp classes
+ * can be used without starting a real server.
+ * It only knows about a single world and a single plugin.
+ */
+public final class HeadlessServer {
+
+    public static final @NotNull String WORLD_NAME = "world";
+
+    private static World world;
+    private static Plugin plugin;
+
+    /**
+     * Used to install the stand in server
+     * if there is no server yet.
+     *
+     * @return The stand in world.
+     */
+    public static synchronized @NotNull World install() {
+        if (HeadlessServer.world != null) return HeadlessServer.world;
+
+        final UUID worldUuid = UUID.nameUUIDFromBytes(WORLD_NAME.getBytes());
+        HeadlessServer.world = (World) Proxy.newProxyInstance(
+                World.class.getClassLoader(),
+                new Class<?>[]{World.class},
+                (proxy, method, arguments) -> switch (method.getName()) {
+                    case "getName" -> WORLD_NAME;
+                    case "getUID" -> worldUuid;
+                    case "getMinHeight" -> -64;
+                    case "getMaxHeight" -> 320;
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "equals" -> proxy == arguments[0];
+                    case "toString" -> "HeadlessWorld";
+                    default -> HeadlessServer.getDefault(method.getReturnType());
+                }
+        );
+
+        final Logger logger = Logger.getLogger("HeadlessServer");
+        Server server = (Server) Proxy.newProxyInstance(
+                Server.class.getClassLoader(),
+                new Class<?>[]{Server.class},
+                (proxy, method, arguments) -> switch (method.getName()) {
+                    case "getWorld" -> HeadlessServer.world;
+                    case "getLogger" -> logger;
+                    case "getName", "getVersion", "getBukkitVersion" -> "Headless";
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "equals" -> proxy == arguments[0];
+                    case "toString" -> "HeadlessServer";
+                    default -> HeadlessServer.getDefault(method.getReturnType());
+                }
+        );
+
+        if (Bukkit.getServer() == null) Bukkit.setServer(server);
+        return HeadlessServer.world;
+    }
+
+    /**
+     * Used to get a stand in plugin, for the classes
+     * that schedule their work through a plugin.
+     *
+     * @return The stand in plugin.
+     */
+    public static synchronized @NotNull Plugin getPlugin() {
+        if (HeadlessServer.plugin != null) return HeadlessServer.plugin;
+
+        final Logger logger = Logger.getLogger("HeadlessPlugin");
+        HeadlessServer.plugin = (Plugin) Proxy.newProxyInstance(
+                Plugin.class.getClassLoader(),
+                new Class<?>[]{Plugin.class},
+                (proxy, method, arguments) -> switch (method.getName()) {
+                    case "getName" -> "CozyWarps";
+                    case "getLogger" -> logger;
+                    case "isEnabled" -> true;
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "equals" -> proxy == arguments[0];
+                    case "toString" -> "HeadlessPlugin";
+                    default -> HeadlessServer.getDefault(method.getReturnType());
+                }
+        );
+        return HeadlessServer.plugin;
+    }
+
+    private static Object getDefault(@NotNull Class<?> type) {
+        if (!type.isPrimitive() || type == void.class) return null;
+        if (type == boolean.class) return false;
+        if (type == char.class) return '\0';
+        if (type == long.class) return 0L;
+        if (type == float.class) return 0f;
+        if (type == double.class) return 0d;
+        if (type == byte.class) return (byte) 0;
+        if (type == short.class) return (short) 0;
+        return 0;
+    }
+}
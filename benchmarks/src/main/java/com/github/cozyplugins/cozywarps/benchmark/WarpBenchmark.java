@@ -0,0 +1,154 @@
+/*
+ * CozyWarps - Used to create player warps.
+ * Copyright (C) 2024 CozyPlugins
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.github.cozyplugins.cozywarps.benchmark;
+
+import com.github.cozyplugins.cozywarps.Warp;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Represents the benchmarks for the warp data paths.
+ * The lookups the plugin's methods use are measured, so the
+ * timers and other work they add are included in the results.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WarpBenchmark {
+
+    private static final int PAGE_SIZE = 45;
+
+    private int query;
+
+    /**
+     * Measures WarpLookup#getAllWarps.
+     */
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public void getAllWarps(WarpDataset dataset, Blackhole blackhole) {
+        for (Warp warp : dataset.lookup.getAllWarps()) blackhole.consume(warp);
+    }
+
+    /**
+     * Measures WarpLookup#getWarp(UUID).
+     */
+    @Benchmark
+    public Optional<Warp> getWarp(WarpDataset dataset) {
+        return dataset.lookup.getWarp(dataset.warps[dataset.getQuery(this.query++)].getIdentifier());
+    }
+
+    /**
+     * Measures WarpLookup#getWarp(UUID, String).
+     */
+    @Benchmark
+    public Optional<Warp> getWarpByName(WarpDataset dataset) {
+        Warp target = dataset.warps[dataset.getQuery(this.query++)];
+        return dataset.lookup.getWarp(target.getManagerUuid(), target.getName());
+    }
+
+    /**
+     * Measures WarpLookup#getAmountOwned.
+     */
+    @Benchmark
+    public int getAmountOwned(WarpDataset dataset) {
+        return dataset.lookup.getAmountOwned(dataset.warps[dataset.getQuery(this.query++)].getManagerUuid());
+    }
+
+    /**
+     * Measures WarpLookup#hasVisited.
+     */
+    @Benchmark
+    public boolean hasVisited(WarpDataset dataset) {
+        int index = dataset.getQuery(this.query++);
+        return dataset.lookup.hasVisited(dataset.warps[index].getIdentifier(), dataset.players[index]);
+    }
+
+    /**
+     * Measures WarpLookup#isBanned.
+     */
+    @Benchmark
+    public boolean isBanned(WarpDataset dataset) {
+        int index = dataset.getQuery(this.query++);
+        UUID ownerUuid = dataset.warps[index].getManagerUuid();
+        return dataset.lookup.isBanned(dataset.players[index], ownerUuid);
+    }
+
+    /**
+     * Measures filling a page of the warps inventory,
+     * the same calls as WarpsInventory#addAllWarps
+     * without the server's inventory.
+     */
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public void getWarpsPage(WarpDataset dataset, Blackhole blackhole) {
+        int index = dataset.getQuery(this.query++);
+        int pages = Math.max(1, (dataset.lookup.getAmountOfWarps() + PAGE_SIZE - 1) / PAGE_SIZE);
+        int page = index % pages;
+        UUID playerUuid = dataset.players[index];
+
+        for (Warp warp : dataset.lookup.getPopularWarps(page * PAGE_SIZE, PAGE_SIZE)) {
+            blackhole.consume(warp.createInventoryItem());
+            blackhole.consume(dataset.lookup.isBanned(playerUuid, warp.getManagerUuid()));
+        }
+    }
+
+    /**
+     * Measures WarpLookup#getNearestWarps.
+     */
+    @Benchmark
+    public List<Warp> getNearestWarps(WarpDataset dataset) {
+        Warp target = dataset.warps[dataset.getQuery(this.query++)];
+        return dataset.lookup.getNearestWarps(target.getLocation(), 10);
+    }
+
+    /**
+     * Measures WarpLookup#getNearbyWarps as used by /warps near.
+     */
+    @Benchmark
+    public List<Warp> getNearbyWarps(WarpDataset dataset) {
+        Warp target = dataset.warps[dataset.getQuery(this.query++)];
+        return dataset.lookup.getNearbyWarps(target.getLocation(), 256, 225);
+    }
+
+    /**
+     * Converts a warp to a configuration section and back,
+     * as done when loading and saving.
+     */
+    @Benchmark
+    public Warp convertRoundTrip(WarpDataset dataset) {
+        Warp warp = dataset.warps[dataset.getQuery(this.query++)];
+        return new Warp(warp.getIdentifier()).convert(warp.convert());
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ * CozyWarps - Used to create player warps.
+ * Copyright (C) 2024 CozyPlugins
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.github.cozyplugins.cozywarps.benchmark;
+
+import com.github.cozyplugins.cozywarps.PlayerNameCache;
+import com.github.cozyplugins.cozywarps.Warp;
+import com.github.cozyplugins.cozywarps.WarpBanIndex;
+import com.github.cozyplugins.cozywarps.WarpLookup;
+import com.github.cozyplugins.cozywarps.WarpRegistry;
+import com.github.cozyplugins.cozywarps.WarpVisitCounter;
+import com.github.cozyplugins.cozywarps.WarpVisitSet;
+import com.github.cozyplugins.cozywarps.metrics.WarpMetrics;
+import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+import java.util.UUID;
+
+/**
+ * Represents a synthetic set of warps, visits and bans.
+ * Each manager has ten warps and every player
+ * has visited and been banned from one warp.
+ */
+@State(Scope.Benchmark)
+public class WarpDataset {
+
+    private static final int WARPS_PER_MANAGER = 10;
+    private static final int QUERIES = 4096;
+    private static final double MAX_NEARBY_RADIUS = 2048;
+
+    @Param({"1000", "10000", "100000"})
+    public int size;
+
+    public WarpLookup lookup;
+    public WarpRegistry registry;
+    public WarpVisitSet visitSet;
+    public WarpBanIndex banIndex;
+    public long nowMillis;
+
+    public Warp[] warps;
+    public UUID[] players;
+    public int[] queries;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        World world = HeadlessServer.install();
+        Random random = new Random(this.size);
+
+        this.registry = new WarpRegistry();
+        this.visitSet = new WarpVisitSet(3600000);
+        this.banIndex = new WarpBanIndex();
+        this.nowMillis = System.currentTimeMillis();
+
+        this.warps = new Warp[this.size];
+        this.players = new UUID[this.size];
+
+        UUID managerUuid = null;
+        for (int index = 0; index < this.size; index++) {
+            if (index % WARPS_PER_MANAGER == 0) managerUuid = new UUID(random.nextLong(), random.nextLong());
+
+            Warp warp = new Warp(new UUID(random.nextLong(), random.nextLong()))
+                    .setCreatorUuid(managerUuid)
+                    .setManagerUuid(managerUuid)
+                    .setName("warp-" + index)
+                    .setDescription("A warp used for benchmarking.")
+                    .setMaterial(Material.COMPASS)
+                    .setLocation(new Location(world, random.nextInt(20000) - 10000, 64, random.nextInt(20000) - 10000))
+                    .setVisits(random.nextInt(1000));
+
+            this.warps[index] = warp;
+            this.registry.putWarp(warp);
+
+            // Each player visits and is banned from one warp.
+            UUID playerUuid = new UUID(random.nextLong(), random.nextLong());
+            this.players[index] = playerUuid;
+            this.visitSet.add(warp.getIdentifier(), playerUuid, this.nowMillis);
+            this.banIndex.ban(playerUuid, managerUuid);
+        }
+
+        // The lookups are given the data and the names
+        // of the managers, so inventory items are rendered
+        // with names instead of looking them up.
+        PlayerNameCache nameCache = new PlayerNameCache(HeadlessServer.getPlugin(), this.size);
+        for (int index = 0; index < this.size; index += WARPS_PER_MANAGER) {
+            nameCache.setName(this.warps[index].getManagerUuid(), "player-" + index);
+        }
+
+        this.lookup = new WarpLookup(
+                this.registry,
+                this.banIndex,
+                this.visitSet,
+                new WarpVisitCounter(),
+                nameCache,
+                new WarpMetrics(),
+                MAX_NEARBY_RADIUS
+        ).install();
+
+        this.queries = new int[QUERIES];
+        for (int index = 0; index < QUERIES; index++) this.queries[index] = random.nextInt(this.size);
+    }
+
+    /**
+     * Used to get the index of a random warp for a query.
+     *
+     * @param query The number of the query.
+     * @return The index of a warp.
+     */
+    public int getQuery(int query) {
+        return this.queries[query & (QUERIES - 1)];
+    }
+}
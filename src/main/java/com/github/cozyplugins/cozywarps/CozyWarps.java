@@ -23,29 +23,61 @@ import com.github.cozyplugins.cozylibrary.inventory.action.action.ConfirmAction;
 import com.github.cozyplugins.cozylibrary.inventory.inventory.ConfirmationInventory;
 import com.github.cozyplugins.cozylibrary.user.PlayerUser;
 import com.github.cozyplugins.cozywarps.command.WarpsCommand;
+import com.github.cozyplugins.cozywarps.metrics.WarpMetrics;
+import com.github.cozyplugins.cozywarps.metrics.WarpTimer;
+import com.github.cozyplugins.cozywarps.storage.BanRepository;
+import com.github.cozyplugins.cozywarps.storage.SqliteRepository;
+import com.github.cozyplugins.cozywarps.storage.WarpRepository;
+import com.github.cozyplugins.cozywarps.storage.YamlRepository;
 import com.github.smuddgge.squishyconfiguration.ConfigurationFactory;
 import com.github.smuddgge.squishyconfiguration.interfaces.Configuration;
 import org.bukkit.Bukkit;
 import org.bukkit.Location;
+import org.bukkit.OfflinePlayer;
 import org.bukkit.entity.Player;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
+import java.io.File;
+import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 
 /**
  * Represents the main class.
+ * <p>
+ * The warp, ban and visit state can be read from any
+ * thread. Changes to a warp hold the warp's lock stripe
+ * and changes to bans hold the owner's lock stripe, so
+ * storage sees the changes in the order they were made.
  */
 public final class CozyWarps extends CozyPlugin {
 
     private static @NotNull CozyWarps instance;
 
-    private @NotNull Configuration warpConfig;
-    private @NotNull Configuration banConfig;
     private @NotNull Configuration config;
-    private @NotNull List<WarpVisit> warpVisitList = new ArrayList<>();
+    private @NotNull WarpRegistry warpRegistry = new WarpRegistry();
+    private @NotNull WarpRepository warpRepository;
+    private @NotNull BanRepository banRepository;
+    private @NotNull WarpVisitSet warpVisitSet = new WarpVisitSet(3600000);
+    private @NotNull WarpVisitCounter visitCounter = new WarpVisitCounter();
+    private PlayerNameCache nameCache;
+    private @NotNull WarpBanIndex banIndex = new WarpBanIndex();
+    private @NotNull WarpLockStripes ownerLocks = new WarpLockStripes(64);
+    private @NotNull ManagerNameIndex managerNameIndex = new ManagerNameIndex();
+    private WarpSafetyChecker safetyChecker;
+    private WarpChunkPinner chunkPinner;
+    private WarpHealthScanner healthScanner;
+    private WarpLookup lookup;
+
+    private @NotNull WarpMetrics metrics = new WarpMetrics();
 
     @Override
     public boolean enableCommandDirectory() {
@@ -54,27 +86,251 @@ public final class CozyWarps extends CozyPlugin {
 
     @Override
     public void onCozyEnable() {
-
-        // Initialise the warp visit list.
-        this.warpVisitList = new ArrayList<>();
-
-        // Create the instance of the storage configuration.
-        this.warpConfig = ConfigurationFactory.YAML.create(this.getDataFolder(), "storage");
-        this.warpConfig.load();
-
-        this.banConfig = ConfigurationFactory.YAML.create(this.getDataFolder(), "bans");
-        this.banConfig.load();
+        final long enableStartNanos = System.nanoTime();
 
         // Create the instance of the config file.
         this.config = ConfigurationFactory.YAML.create(this.getDataFolder(), "config");
         this.config.setDefaultPath("config.yml");
         this.config.load();
 
+        // Write the timings to a file to line them up with tick spikes.
+        long metricsInterval = this.config.getLong("metrics-file-interval", 1200);
+        if (metricsInterval > 0) this.metrics.startFileWriter(this, metricsInterval);
+
+        // Initialise the warp safety checker.
+        this.safetyChecker = new WarpSafetyChecker(this, this.metrics);
+
+        // Initialise the warp visit set.
+        this.warpVisitSet = new WarpVisitSet(this.config.getLong("visit-window", 60) * 60000);
+        this.startVisitRemovingTask();
+
+        // Set up the storage and load the warps into memory once.
+        this.setupStorage();
+        this.warpRegistry = new WarpRegistry();
+        final long loadStartNanos = System.nanoTime();
+        this.warpRepository.loadWarps(this.warpRegistry::putWarp);
+        final long loadNanos = System.nanoTime() - loadStartNanos;
+        this.metrics.getTimer(WarpMetrics.STORAGE_LOAD).record(loadNanos, 0);
+        this.getLogger().info("Loaded " + this.warpRegistry.size() + " warps in " + loadNanos / 1000000 + " ms.");
+        this.getServer().getPluginManager().registerEvents(new WarpWorldListener(this.warpRegistry), this);
+        this.banIndex = new WarpBanIndex();
+        this.banRepository.loadBans((ownerUuid, playerUuid) -> this.banIndex.ban(playerUuid, ownerUuid));
+
+        // Look up the names shown on the warps in the background.
+        // The cache holds at least every name it is warmed with,
+        // so warming it does not remove the names it just added.
+        Set<UUID> playerUuids = new HashSet<>();
+        for (Warp warp : this.warpRegistry.getAllWarps()) {
+            playerUuids.add(warp.getManagerUuid());
+            playerUuids.add(warp.getCreatorUuid());
+        }
+        int nameCacheSize = Math.max(this.config.getInteger("name-cache-size", 2000), playerUuids.size());
+        this.nameCache = new PlayerNameCache(this, nameCacheSize);
+        this.getServer().getPluginManager().registerEvents(this.nameCache, this);
+
+        // Index the manager names as they are looked up.
+        this.managerNameIndex = new ManagerNameIndex();
+        this.nameCache.setChangeListener(this::refreshManagerName);
+        this.nameCache.load(playerUuids);
+        for (UUID managerUuid : this.warpRegistry.getManagerUuids()) this.refreshManagerName(managerUuid);
+
+        // Save counted visits in batches.
+        this.visitCounter = new WarpVisitCounter();
+        long visitFlushInterval = this.config.getLong("storage.visit-flush-interval", 200);
+        Bukkit.getScheduler().runTaskTimer(this, this::flushVisits, visitFlushInterval, visitFlushInterval);
+
+        // Serve the lookups from memory.
+        this.lookup = new WarpLookup(
+                this.warpRegistry,
+                this.banIndex,
+                this.warpVisitSet,
+                this.visitCounter,
+                this.nameCache,
+                this.metrics,
+                this.config.getInteger("nearby.max-radius", 2048)
+        ).install();
+
+        // Keep the chunks around the most visited warps loaded.
+        if (this.config.getBoolean("chunk-pinning.enabled", false)) {
+            this.chunkPinner = new WarpChunkPinner(
+                    this,
+                    this.warpRegistry,
+                    this.config.getInteger("chunk-pinning.warps", 10),
+                    this.config.getInteger("chunk-pinning.radius", 1),
+                    this.config.getInteger("chunk-pinning.memory-budget-mb", 64),
+                    this.config.getLong("chunk-pinning.budget-micros", 1000)
+            );
+            this.chunkPinner.start(this.config.getLong("chunk-pinning.interval", 6000));
+        }
+
+        // Check the health of the warps in loaded chunks in the background.
+        if (this.config.getBoolean("health-scan.enabled", false)) {
+            this.healthScanner = new WarpHealthScanner(
+                    this,
+                    this.warpRegistry,
+                    this.safetyChecker,
+                    this.config.getLong("health-scan.budget-micros", 1000),
+                    this.config.getLong("health-scan.rest-interval", 12000)
+            );
+            this.healthScanner.start();
+        }
+
         // Initialise the instance getter.
         CozyWarps.instance = this;
 
         // Add all the command types.
         this.addCommandType(new WarpsCommand());
+        this.getLogger().info("Enabled in " + (System.nanoTime() - enableStartNanos) / 1000000 + " ms.");
+    }
+
+    @Override
+    public void onDisable() {
+
+        if (this.healthScanner != null) this.healthScanner.stop();
+
+        // Release the pinned chunks.
+        if (this.chunkPinner != null) this.chunkPinner.stop();
+
+        // Write any changes that are still pending.
+        if (this.warpRepository != null) {
+            this.flushVisits();
+            this.warpRepository.close();
+        }
+        if (this.banRepository != null && this.banRepository != this.warpRepository) {
+            this.banRepository.close();
+        }
+
+        super.onDisable();
+    }
+
+    /**
+     * Used to create the repositories selected
+     * in the configuration file.
+     */
+    private void setupStorage() {
+        String type = this.config.getString("storage.type", "yaml");
+        int shards = this.config.getInteger("storage.shards", 16);
+
+        if (type.equalsIgnoreCase("sqlite")) {
+            try {
+                SqliteRepository repository = new SqliteRepository(this);
+
+                // Import the yaml files the first time sqlite is used.
+                // The yaml files are only read, so they are left as they are.
+                if (repository.isEmpty() && YamlRepository.hasWarpFiles(this.getDataFolder())) {
+                    YamlRepository yamlRepository = new YamlRepository(this, shards);
+                    yamlRepository.loadWarps(repository::saveWarp);
+                    yamlRepository.loadBans((ownerUuid, playerUuid) -> repository.banPlayer(playerUuid, ownerUuid));
+                    repository.flush();
+                    this.getLogger().info("Imported the yaml storage into sqlite.");
+                }
+
+                this.warpRepository = repository;
+                this.banRepository = repository;
+                return;
+
+            } catch (SQLException exception) {
+                this.getLogger().severe("Unable to open the sqlite storage, using yaml instead: " + exception.getMessage());
+            }
+        }
+
+        YamlRepository repository = new YamlRepository(this, shards).migrate();
+        if (this.config.getBoolean("storage.snapshot", false)) {
+            repository.enableSnapshot(() -> this.warpRegistry.getAllWarps());
+        }
+        if (this.config.getBoolean("storage.journal", false)) {
+            repository.enableJournal(this.config.getLong("storage.journal-compact-size", 1024) * 1024);
+        } else if (this.config.getBoolean("storage.write-behind", false)) {
+            repository.enableWriteBehind(this.config.getInteger("storage.flush-interval", 100));
+        }
+
+        this.warpRepository = repository;
+        this.banRepository = repository;
+    }
+
+    /**
+     * Used to get the registry of loaded warps.
+     *
+     * @return The warp registry.
+     */
+    public @NotNull WarpRegistry getWarpRegistry() {
+        return this.warpRegistry;
+    }
+
+    /**
+     * Used to get the visit counter.
+     *
+     * @return The visit counter.
+     */
+    public @NotNull WarpVisitCounter getVisitCounter() {
+        return this.visitCounter;
+    }
+
+    /**
+     * Used to get the timers for the plugin's hot paths.
+     *
+     * @return The metrics.
+     */
+    public @NotNull WarpMetrics getMetrics() {
+        return this.metrics;
+    }
+
+    /**
+     * Used to get the warp safety checker.
+     *
+     * @return The warp safety checker.
+     */
+    public @NotNull WarpSafetyChecker getSafetyChecker() {
+        return this.safetyChecker;
+    }
+
+    /**
+     * Used to get the player name cache.
+     *
+     * @return The player name cache.
+     */
+    public @NotNull PlayerNameCache getNameCache() {
+        return this.nameCache;
+    }
+
+    /**
+     * Used to count a visit to a warp.
+     * The visit is saved with the next batch of visits
+     * and the warp is moved in the popularity ranking.
+     *
+     * @param warp The instance of the warp.
+     * @return This instance.
+     */
+    public @NotNull CozyWarps countVisit(@NotNull Warp warp) {
+        this.visitCounter.increment(warp.getIdentifier());
+        this.warpRegistry.updateRanking(warp);
+        return this;
+    }
+
+    /**
+     * Used to add the counted visits to each warp's
+     * saved visits and save them in one batch.
+     *
+     * @return This instance.
+     */
+    public @NotNull CozyWarps flushVisits() {
+        List<Warp> changedWarps = new ArrayList<>();
+
+        this.visitCounter.flush((identifier, delta) -> {
+
+            // The warp is got while holding its lock,
+            // as an edit may have replaced it.
+            synchronized (this.warpRegistry.getLock(identifier)) {
+                Warp warp = this.warpRegistry.getWarp(identifier);
+                if (warp == null) return;
+
+                warp.setVisits((int) (warp.getSavedVisits() + delta));
+                changedWarps.add(warp);
+            }
+        });
+
+        if (!changedWarps.isEmpty()) this.warpRepository.saveVisits(changedWarps);
+        return this;
     }
 
     /**
@@ -118,11 +374,7 @@ public final class CozyWarps extends CozyPlugin {
      * @return The optional warp.
      */
     public @NotNull Optional<Warp> getWarp(@NotNull UUID identifier) {
-        if (this.warpConfig.getKeys().contains(identifier.toString())) {
-            return Optional.of(new Warp(identifier).convert(this.warpConfig.getSection(identifier.toString())));
-        }
-
-        return Optional.empty();
+        return this.lookup.getWarp(identifier);
     }
 
     /**
@@ -134,28 +386,105 @@ public final class CozyWarps extends CozyPlugin {
      * @return The optional warp.
      */
     public @NotNull Optional<Warp> getWarp(@NotNull UUID playerUuid, @NotNull String warpName) {
-        for (Warp warp : this.getAllWarps()) {
-            if (!warp.getManagerUuid().equals(playerUuid)) continue;
-            if (!warp.getName().equals(warpName)) continue;
-            return Optional.of(warp);
-        }
-        return Optional.empty();
+        return this.lookup.getWarp(playerUuid, warpName);
     }
 
     /**
-     * Used to get the list of all warps.
+     * Used to get all warps.
+     * This is a read only view of the loaded warps,
+     * copy it before sorting.
      *
-     * @return The list of all warps.
+     * @return The collection of all warps.
      */
-    public @NotNull List<Warp> getAllWarps() {
-        List<Warp> list = new ArrayList<>();
+    public @NotNull Collection<Warp> getAllWarps() {
+        return this.lookup.getAllWarps();
+    }
 
-        // Loop though all keys.
-        for (String key : this.warpConfig.getKeys()) {
-            list.add(new Warp(UUID.fromString(key)).convert(this.warpConfig.getSection(key)));
+    /**
+     * Used to get a page of warps ordered by popularity.
+     *
+     * @param offset The position of the first warp.
+     * @param limit  The maximum number of warps.
+     * @return The list of warps.
+     */
+    public @NotNull List<Warp> getPopularWarps(int offset, int limit) {
+        return this.lookup.getPopularWarps(offset, limit);
+    }
+
+    /**
+     * Used to search for warps by their name and description.
+     *
+     * @param query The search query.
+     * @param limit The maximum number of results.
+     * @return The matching warps ordered by popularity.
+     */
+    public @NotNull List<Warp> searchWarps(@NotNull String query, int limit) {
+        return this.lookup.searchWarps(query, limit);
+    }
+
+    /**
+     * Used to get the warps within a distance of a location.
+     * The distance is limited to the configured maximum.
+     *
+     * @param location The location to search around.
+     * @param radius   The distance in blocks.
+     * @param limit    The maximum number of results.
+     * @return The warps in the same world, closest first.
+     */
+    public @NotNull List<Warp> getNearbyWarps(@NotNull Location location, double radius, int limit) {
+        return this.lookup.getNearbyWarps(location, radius, limit);
+    }
+
+    /**
+     * Used to get the closest warps to a location.
+     *
+     * @param location The location to search around.
+     * @param amount   The number of warps.
+     * @return The warps in the same world, closest first.
+     */
+    public @NotNull List<Warp> getNearestWarps(@NotNull Location location, int amount) {
+        return this.lookup.getNearestWarps(location, amount);
+    }
+
+    /**
+     * Used to get the default distance used
+     * when looking for nearby warps.
+     *
+     * @return The distance in blocks.
+     */
+    public int getDefaultNearbyRadius() {
+        return this.config.getInteger("nearby.default-radius", 256);
+    }
+
+    /**
+     * Used to write the binary warp snapshot to
+     * storage-export.yml in the background.
+     *
+     * @return Completed on the main thread with the number of warps
+     * exported, or -1 if there is no snapshot to export.
+     */
+    public @NotNull CompletableFuture<Integer> exportSnapshot() {
+        CompletableFuture<Integer> future = new CompletableFuture<>();
+        if (!(this.warpRepository instanceof YamlRepository repository)) {
+            future.complete(-1);
+            return future;
         }
 
-        return list;
+        final File target = new File(this.getDataFolder(), "storage-export.yml");
+        Bukkit.getScheduler().runTaskAsynchronously(this, () -> {
+            int amount = repository.exportSnapshot(target);
+            Bukkit.getScheduler().runTask(this, () -> future.complete(amount));
+        });
+        return future;
+    }
+
+    /**
+     * Used to get the number of loaded warps.
+     *
+     * @return The number of warps.
+     */
+    public int getAmountOfWarps() {
+        return this.lookup.getAmountOfWarps();
     }
 
     /**
@@ -165,11 +494,7 @@ public final class CozyWarps extends CozyPlugin {
      * @return The list of their warps.
      */
     public @NotNull List<Warp> getAllWarps(@NotNull UUID playerUuid) {
-        List<Warp> list = new ArrayList<>();
-        for (Warp warp : this.getAllWarps()) {
-            if (warp.getManagerUuid().equals(playerUuid)) list.add(warp);
-        }
-        return list;
+        return this.lookup.getAllWarps(playerUuid);
     }
 
     /**
@@ -179,25 +504,57 @@ public final class CozyWarps extends CozyPlugin {
      * @return The number of warps they own.
      */
     public int getAmountOwned(@NotNull UUID uuid) {
-        int amountOwned = 0;
-        for (Warp warp : this.getAllWarps()) {
-            if (warp.getManagerUuid().equals(uuid)) amountOwned++;
-        }
-        return amountOwned;
+        return this.lookup.getAmountOwned(uuid);
     }
 
     /**
-     * Used to get the warp owners names.
+     * Used to get the warp owners names that start
+     * with a prefix, ignoring case.
+     * Names that are still being looked up are left out.
      *
+     * @param prefix The prefix.
+     * @param limit  The maximum number of names.
      * @return The names of the warp owners.
      */
-    public @NotNull List<String> getManagerNames() {
-        List<String> list = new ArrayList<>();
-        for (Warp warp : this.getAllWarps()) {
-            if (list.contains(warp.getManagerName())) continue;
-            list.add(warp.getManagerName());
+    public @NotNull List<String> getManagerNames(@NotNull String prefix, int limit) {
+        return this.managerNameIndex.complete(prefix, limit);
+    }
+
+    /**
+     * Used to get the uuid of a warp owner given their name.
+     *
+     * @param name The owner's name, ignoring case.
+     * @return The owner's uuid or null if they do not own a warp.
+     */
+    public @Nullable UUID getManagerUuid(@NotNull String name) {
+        return this.managerNameIndex.getManagerUuid(name);
+    }
+
+    /**
+     * Used to get the names of a player's warps that
+     * start with a prefix, ignoring case.
+     *
+     * @param playerUuid The player's uuid.
+     * @param prefix     The prefix.
+     * @param limit      The maximum number of names.
+     * @return The warp names.
+     */
+    public @NotNull List<String> getWarpNames(@NotNull UUID playerUuid, @NotNull String prefix, int limit) {
+        return this.warpRegistry.completeWarpNames(playerUuid, prefix, limit);
+    }
+
+    /**
+     * Used to update the indexed name of a warp owner.
+     * Players that no longer own a warp are removed.
+     *
+     * @param managerUuid The owner's uuid.
+     */
+    private void refreshManagerName(@NotNull UUID managerUuid) {
+        if (this.warpRegistry.getAmountManaged(managerUuid) == 0) {
+            this.managerNameIndex.update(managerUuid, null);
+            return;
         }
-        return list;
+        this.managerNameIndex.update(managerUuid, this.nameCache.getNameIfPresent(managerUuid));
     }
 
     /**
@@ -209,21 +566,20 @@ public final class CozyWarps extends CozyPlugin {
      */
     public @NotNull List<String> getBannedPlayers(@NotNull UUID playerUuid) {
         List<String> playerNameList = new ArrayList<>();
-        for (String uuidString : this.banConfig.getListString(playerUuid.toString(), new ArrayList<>())) {
-            UUID uuid = UUID.fromString(uuidString);
-            playerNameList.add(Bukkit.getOfflinePlayer(uuid).getName());
+        for (UUID uuid : this.banIndex.getBannedPlayers(playerUuid)) {
+            playerNameList.add(this.nameCache.getName(uuid));
         }
         return playerNameList;
     }
 
     /**
-     * Used to add a warp visit to the visit list.
+     * Used to add a warp visit to the visit set.
      *
      * @param warpVisit The instance of the warp visit.
      * @return This instance.
      */
     public @NotNull CozyWarps addWarpVisit(@NotNull WarpVisit warpVisit) {
-        this.warpVisitList.add(warpVisit);
+        this.warpVisitSet.add(warpVisit.getWarpUuid(), warpVisit.getPlayerUuid(), System.currentTimeMillis());
         return this;
     }
 
@@ -233,12 +589,12 @@ public final class CozyWarps extends CozyPlugin {
      * @return This instance.
      */
     public @NotNull CozyWarps removeWarpVisits() {
-        this.warpVisitList = new ArrayList<>();
+        this.warpVisitSet.clear();
         return this;
     }
 
     /**
-     * Used to check if the list of visits contains a certain
+     * Used to check if the set of visits contains a certain
      * warp uuid and player uuid.
      *
      * @param warpUuid   The warp uuid to check.
@@ -246,12 +602,7 @@ public final class CozyWarps extends CozyPlugin {
      * @return True if they have visited recently.
      */
     public boolean hasVisited(@NotNull UUID warpUuid, @NotNull UUID playerUuid) {
-        for (WarpVisit warpVisit : this.warpVisitList) {
-            if (warpVisit.isWarpUuid(warpUuid) && warpVisit.isPlayerUuid(playerUuid)) {
-                return true;
-            }
-        }
-        return false;
+        return this.lookup.hasVisited(warpUuid, playerUuid);
     }
 
     /**
@@ -262,22 +613,58 @@ public final class CozyWarps extends CozyPlugin {
      * @return True if they are banned.
      */
     public boolean isBanned(@NotNull UUID playerUuid, @NotNull UUID ownerUuid) {
-        List<String> bannedPlayers = this.banConfig.getListString(ownerUuid.toString());
-        return bannedPlayers.contains(playerUuid.toString());
+        return this.lookup.isBanned(playerUuid, ownerUuid);
     }
 
     /**
      * Used to update or insert a warp in storage.
+     * When write behind is enabled the warp is saved
+     * by the background flusher instead.
      *
      * @param warp The instance of the warp to update or insert.
      * @return This instance.
      */
     public @NotNull CozyWarps updateWarp(@NotNull Warp warp) {
-        this.warpConfig.set(warp.getIdentifier().toString(), warp.convert().getMap());
-        this.warpConfig.save();
+        WarpTimer.Sample sample = this.metrics.start(WarpMetrics.STORAGE_UPDATE_WARP);
+        UUID previousManagerUuid;
+        synchronized (this.warpRegistry.getLock(warp.getIdentifier())) {
+            previousManagerUuid = this.warpRegistry.getIndexedManagerUuid(warp.getIdentifier());
+            warp.markChanged();
+            this.warpRegistry.putWarp(warp);
+            this.warpRepository.saveWarp(warp);
+        }
+
+        // Keep the manager names up to date.
+        this.refreshManagerName(warp.getManagerUuid());
+        if (previousManagerUuid != null && !previousManagerUuid.equals(warp.getManagerUuid())) {
+            this.refreshManagerName(previousManagerUuid);
+        }
+        sample.stop();
         return this;
     }
 
+    /**
+     * Used to change a registered warp and save it.
+     * The change is made to a copy of the warp, which then
+     * replaces it, so other threads only ever see the warp
+     * from before or after the change.
+     *
+     * @param identifier The warp's unique identifier.
+     * @param editor     Used to change the copy of the warp.
+     * @return The changed warp, or null if it is not registered.
+     */
+    public @Nullable Warp editWarp(@NotNull UUID identifier, @NotNull Consumer<Warp> editor) {
+        synchronized (this.warpRegistry.getLock(identifier)) {
+            Warp warp = this.warpRegistry.getWarp(identifier);
+            if (warp == null) return null;
+
+            Warp copy = warp.duplicate().setHealth(warp.getHealth());
+            editor.accept(copy);
+            this.updateWarp(copy);
+            return copy;
+        }
+    }
+
     /**
      * Used to remove a warp from storage.
      *
@@ -286,16 +673,24 @@ public final class CozyWarps extends CozyPlugin {
      * @return This instance.
      */
     public @NotNull CozyWarps removeWarp(@NotNull String playerName, @NotNull String warpName) {
-        for (Warp warp : this.getAllWarps()) {
+        OfflinePlayer player = Bukkit.getOfflinePlayer(playerName);
+        boolean isStaff = player.getPlayer().hasPermission("cozywarps.staff.delete");
 
-            // Check the credentials.
-            if (!Bukkit.getOfflinePlayer(playerName).getPlayer().hasPermission("cozywarps.staff.delete")){
-                if (!Bukkit.getOfflinePlayer(playerName).getUniqueId().equals(warp.getManagerUuid())) continue;
-            }
+        // Staff may delete any warp, otherwise only the
+        // player's own warps are searched.
+        Collection<Warp> warps = isStaff
+                ? this.getAllWarps()
+                : this.warpRegistry.getAllWarps(player.getUniqueId());
+
+        for (Warp warp : warps) {
             if (!warpName.equals(warp.getName())) continue;
 
-            this.warpConfig.set(warp.getIdentifier().toString(), null);
-            this.warpConfig.save();
+            synchronized (this.warpRegistry.getLock(warp.getIdentifier())) {
+                this.warpRegistry.removeWarp(warp.getIdentifier());
+                this.warpRepository.removeWarp(warp.getIdentifier());
+                this.visitCounter.remove(warp.getIdentifier());
+            }
+            this.refreshManagerName(warp.getManagerUuid());
             return this;
         }
         return this;
@@ -309,10 +704,13 @@ public final class CozyWarps extends CozyPlugin {
      * @return This instance.
      */
     public @NotNull CozyWarps banPlayer(@NotNull UUID playerUuid, @NotNull UUID ownerUuid) {
-        List<String> list = this.banConfig.getListString(ownerUuid.toString(), new ArrayList<>());
-        list.add(playerUuid.toString());
-        this.banConfig.set(ownerUuid.toString(), list);
-        this.banConfig.save();
+        synchronized (this.ownerLocks.getLock(ownerUuid)) {
+            if (!this.banIndex.ban(playerUuid, ownerUuid)) return this;
+
+            WarpTimer.Sample sample = this.metrics.start(WarpMetrics.STORAGE_BAN);
+            this.banRepository.banPlayer(playerUuid, ownerUuid);
+            sample.stop();
+        }
         return this;
     }
 
@@ -324,25 +722,28 @@ public final class CozyWarps extends CozyPlugin {
      * @return This instance.
      */
     public @NotNull CozyWarps unBanPlayer(@NotNull UUID playerUuid, @NotNull UUID ownerUuid) {
-        List<String> list = this.banConfig.getListString(ownerUuid.toString(), new ArrayList<>());
-        list.remove(playerUuid.toString());
-        this.banConfig.set(ownerUuid.toString(), list);
-        this.banConfig.save();
+        synchronized (this.ownerLocks.getLock(ownerUuid)) {
+            if (!this.banIndex.unBan(playerUuid, ownerUuid)) return this;
+            this.banRepository.unBanPlayer(playerUuid, ownerUuid);
+        }
         return this;
     }
 
     /**
      * Used to start the bukkit task of removing
-     * visits every hour.
+     * visits once they leave the visit window.
+     * Each visit expires one window after it was
+     * recorded, this task only frees the memory.
      */
     public void startVisitRemovingTask() {
+        long periodTicks = Math.max(20, this.warpVisitSet.getGenerationMillis() / 50);
 
         // Create the task.
         Bukkit.getScheduler().runTaskTimer(
                 this,
-                this::removeWarpVisits,
-                72000,
-                72000
+                () -> this.warpVisitSet.expire(System.currentTimeMillis()),
+                periodTicks,
+                periodTicks
         );
     }
 
@@ -365,12 +766,28 @@ public final class CozyWarps extends CozyPlugin {
             return;
         }
 
-        // Check if the location is safe.
-        if (!warp.isSafe()) {
-            user.sendMessage("&7&l> &7This location is not safe for players to warp to.");
-            user.sendMessage("&7- &fThe block below you should not be air.");
-            return;
-        }
+        // Check if the location is safe, then continue
+        // once the check has finished.
+        warp.isSafe().thenAccept(safe -> {
+            if (!user.getPlayer().isOnline()) return;
+            if (!safe) {
+                user.sendMessage("&7&l> &7This location is not safe for players to warp to.");
+                user.sendMessage("&7- &fYou should stand on a solid block with space above you, away from lava.");
+                return;
+            }
+            this.confirmWarp(user, name, warp);
+        });
+    }
+
+    /**
+     * Used to ask a player to buy a warp after
+     * its location has been checked.
+     *
+     * @param user The instance of the user creating the warp.
+     * @param name The name of the warp.
+     * @param warp The warp with its location set.
+     */
+    private void confirmWarp(@NotNull PlayerUser user, @NotNull String name, @NotNull Warp warp) {
 
         // Get the warp cost
         final int cost = CozyWarps.getInstance().getPrice(user.getPlayer());
@@ -0,0 +1,101 @@
+/*
+ * CozyWarps - Used to create player warps.
+ * Copyright (C) 2024 CozyPlugins
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.github.cozyplugins.cozywarps;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Represents the names of the players that manage warps,
+ * used to complete and look up manager names without
+ * going through every warp or player data file.
+ * <p>
+ * Managers are only added once their name is known.
+ * Names are changed and completed while holding the index,
+ * and a manager's uuid can be looked up without locking.
+ */
+public class ManagerNameIndex {
+
+    private final @NotNull WarpNameTrie trie;
+    private final @NotNull Map<UUID, String> indexedNameMap;
+    private final @NotNull Map<String, UUID> uuidMap;
+
+    /**
+     * Used to create an empty manager name index.
+     */
+    public ManagerNameIndex() {
+        this.trie = new WarpNameTrie();
+        this.indexedNameMap = new HashMap<>();
+        this.uuidMap = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Used to set the name of a manager.
+     *
+     * @param managerUuid The manager's uuid.
+     * @param name        The manager's name, or null to remove them.
+     * @return This instance.
+     */
+    public synchronized @NotNull ManagerNameIndex update(@NotNull UUID managerUuid, @Nullable String name) {
+        String previousName = this.indexedNameMap.get(managerUuid);
+        if (name == null ? previousName == null : name.equals(previousName)) return this;
+
+        if (previousName != null) {
+            this.indexedNameMap.remove(managerUuid);
+            this.trie.remove(previousName);
+            this.uuidMap.remove(previousName.toLowerCase(Locale.ROOT), managerUuid);
+        }
+
+        if (name != null) {
+            this.indexedNameMap.put(managerUuid, name);
+            this.trie.add(name);
+            this.uuidMap.put(name.toLowerCase(Locale.ROOT), managerUuid);
+        }
+        return this;
+    }
+
+    /**
+     * Used to get the manager names that start
+     * with a prefix, ignoring case.
+     *
+     * @param prefix The prefix.
+     * @param limit  The maximum number of names.
+     * @return The list of names.
+     */
+    public synchronized @NotNull List<String> complete(@NotNull String prefix, int limit) {
+        return this.trie.complete(prefix, limit);
+    }
+
+    /**
+     * Used to get the uuid of a manager given their name.
+     *
+     * @param name The manager's name, ignoring case.
+     * @return The manager's uuid or null if there is no manager with the name.
+     */
+    public @Nullable UUID getManagerUuid(@NotNull String name) {
+        return this.uuidMap.get(name.toLowerCase(Locale.ROOT));
+    }
+}
@@ -0,0 +1,180 @@
+/*
+ * CozyWarps - Used to create player warps.
+ * Copyright (C) 2024 CozyPlugins
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.github.cozyplugins.cozywarps;
+
+import org.bukkit.Bukkit;
+import org.bukkit.OfflinePlayer;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.plugin.Plugin;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Represents a bounded cache of player names.
+ * Names that are not cached are looked up in the
+ * background, so the main thread never has to read
+ * player data from disk.
+ */
+public class PlayerNameCache implements Listener {
+
+    public static final @NotNull String LOADING = "Loading...";
+    public static final @NotNull String UNKNOWN = "Unknown";
+
+    private final @NotNull Plugin plugin;
+    private final @NotNull Map<UUID, String> nameMap;
+    private final @NotNull Set<UUID> loadingSet;
+    private @Nullable Consumer<UUID> changeListener;
+
+    /**
+     * Used to create an empty player name cache.
+     *
+     * @param plugin   The instance of the plugin.
+     * @param capacity The maximum number of names to keep.
+     */
+    public PlayerNameCache(@NotNull Plugin plugin, int capacity) {
+        this.plugin = plugin;
+        this.nameMap = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<UUID, String> eldest) {
+                return this.size() > Math.max(1, capacity);
+            }
+        };
+        this.loadingSet = ConcurrentHashMap.newKeySet();
+    }
+
+    /**
+     * Used to set the listener that is given the uuid
+     * of every player whose name is added or changed.
+     * It is always called on the main thread.
+     *
+     * @param changeListener The listener.
+     * @return This instance.
+     */
+    public @NotNull PlayerNameCache setChangeListener(@Nullable Consumer<UUID> changeListener) {
+        this.changeListener = changeListener;
+        return this;
+    }
+
+    /**
+     * Used to get a player's name.
+     * If the name is not cached it is looked up
+     * in the background and a placeholder is returned.
+     *
+     * @param playerUuid The player's uuid.
+     * @return The player's name or a placeholder.
+     */
+    public @NotNull String getName(@NotNull UUID playerUuid) {
+        String name = this.getNameIfPresent(playerUuid);
+        return name == null ? LOADING : name;
+    }
+
+    /**
+     * Used to get a player's name only if it is cached.
+     * If the name is not cached it is looked up
+     * in the background.
+     *
+     * @param playerUuid The player's uuid.
+     * @return The player's name or null if it is not cached.
+     */
+    public @Nullable String getNameIfPresent(@NotNull UUID playerUuid) {
+        String name;
+        synchronized (this.nameMap) {
+            name = this.nameMap.get(playerUuid);
+        }
+
+        if (name == null) this.load(List.of(playerUuid));
+        return name;
+    }
+
+    /**
+     * Used to set a player's name.
+     *
+     * @param playerUuid The player's uuid.
+     * @param name       The player's name.
+     * @return This instance.
+     */
+    public @NotNull PlayerNameCache setName(@NotNull UUID playerUuid, @NotNull String name) {
+        String previous;
+        synchronized (this.nameMap) {
+            previous = this.nameMap.put(playerUuid, name);
+        }
+
+        if (name.equals(previous)) return this;
+
+        // Tell the listener on the main thread.
+        Consumer<UUID> listener = this.changeListener;
+        if (listener == null) return this;
+        if (Bukkit.isPrimaryThread()) {
+            listener.accept(playerUuid);
+        } else {
+            Bukkit.getScheduler().runTask(this.plugin, () -> listener.accept(playerUuid));
+        }
+        return this;
+    }
+
+    /**
+     * Used to look up the names of players in the background.
+     * Players that are already cached or being looked up
+     * are skipped.
+     *
+     * @param playerUuids The players' uuids.
+     * @return This instance.
+     */
+    public @NotNull PlayerNameCache load(@NotNull Collection<UUID> playerUuids) {
+        List<UUID> list = new ArrayList<>();
+        synchronized (this.nameMap) {
+            for (UUID playerUuid : playerUuids) {
+                if (this.nameMap.containsKey(playerUuid)) continue;
+                if (!this.loadingSet.add(playerUuid)) continue;
+                list.add(playerUuid);
+            }
+        }
+        if (list.isEmpty()) return this;
+
+        Bukkit.getScheduler().runTaskAsynchronously(this.plugin, () -> {
+            for (UUID playerUuid : list) {
+                try {
+                    OfflinePlayer player = Bukkit.getOfflinePlayer(playerUuid);
+                    this.setName(playerUuid, player.getName() == null ? UNKNOWN : player.getName());
+                } finally {
+                    this.loadingSet.remove(playerUuid);
+                }
+            }
+        });
+        return this;
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerJoin(PlayerJoinEvent event) {
+        this.setName(event.getPlayer().getUniqueId(), event.getPlayer().getName());
+    }
+}
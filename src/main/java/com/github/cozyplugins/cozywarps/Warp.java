@@ -24,18 +24,22 @@ import com.github.cozyplugins.cozylibrary.indicator.Savable;
 import com.github.cozyplugins.cozylibrary.inventory.InventoryItem;
 import com.github.cozyplugins.cozylibrary.user.PlayerUser;
 import com.github.cozyplugins.cozywarps.indicator.LocationConverter;
+import com.github.cozyplugins.cozywarps.metrics.WarpMetrics;
+import com.github.cozyplugins.cozywarps.metrics.WarpTimer;
 import com.github.smuddgge.squishyconfiguration.interfaces.ConfigurationSection;
 import com.github.smuddgge.squishyconfiguration.memory.MemoryConfigurationSection;
 import org.bukkit.Bukkit;
 import org.bukkit.Location;
 import org.bukkit.Material;
 import org.bukkit.OfflinePlayer;
-import org.bukkit.util.Vector;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.util.ArrayList;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Represents a warp player's can warp to.
@@ -49,9 +53,42 @@ public class Warp implements ConfigurationConvertable<Warp>, Replicable<Warp>, S
     private @Nullable String description;
     private @NotNull Material material;
 
+    private @Nullable WarpLocation storedLocation;
     private @Nullable Location location;
     private int visits;
 
+    private @NotNull WarpHealth health = WarpHealth.UNKNOWN;
+
+    private int version;
+    private @Nullable Render render;
+
+    /**
+     * Represents the text of the warp's inventory item,
+     * stamped with the version, visits and player names
+     * it was made from.
+     */
+    private static class Render {
+
+        private final int version;
+        private final int visits;
+        private final @NotNull String managerName;
+        private final @NotNull String creatorName;
+        private final @NotNull String name;
+        private final @NotNull String[] lore;
+
+        private Render(int version, int visits,
+                       @NotNull String managerName, @NotNull String creatorName,
+                       @NotNull String name, @NotNull String[] lore) {
+
+            this.version = version;
+            this.visits = visits;
+            this.managerName = managerName;
+            this.creatorName = creatorName;
+            this.name = name;
+            this.lore = lore;
+        }
+    }
+
     /**
      * Used to create a warp instance.
      *
@@ -85,10 +122,14 @@ public class Warp implements ConfigurationConvertable<Warp>, Replicable<Warp>, S
 
     /**
      * Used to get the creator's name.
+     * This is a placeholder until the name has been looked up.
      *
      * @return The creator's name.
      */
     public @NotNull String getCreatorName() {
+        WarpLookup lookup = WarpLookup.getInstance();
+        if (lookup != null) return lookup.getNameCache().getName(this.creatorUuid);
+
         OfflinePlayer player = Bukkit.getOfflinePlayer(this.creatorUuid);
         if (player.getName() == null) return "Unknown";
         return player.getName();
@@ -105,10 +146,14 @@ public class Warp implements ConfigurationConvertable<Warp>, Replicable<Warp>, S
 
     /**
      * Used to get the manager's name.
+     * This is a placeholder until the name has been looked up.
      *
      * @return The manager's name.
      */
     public @NotNull String getManagerName() {
+        WarpLookup lookup = WarpLookup.getInstance();
+        if (lookup != null) return lookup.getNameCache().getName(this.managerUuid);
+
         OfflinePlayer player = Bukkit.getOfflinePlayer(this.managerUuid);
         if (player.getName() == null) return "Unknown";
         return player.getName();
@@ -144,25 +189,61 @@ public class Warp implements ConfigurationConvertable<Warp>, Replicable<Warp>, S
 
     /**
      * Used to get the warp's location.
+     * The location is resolved from the stored world name
+     * the first time its world is loaded.
      *
-     * @return The warp's location.
+     * @return The warp's location, or null if the
+     * world is not loaded.
      */
     public @Nullable Location getLocation() {
-        return this.location;
+        Location location = this.location;
+        if (location != null && location.isWorldLoaded()) return location;
+
+        // Check if the world has been loaded since.
+        WarpLocation storedLocation = this.storedLocation;
+        if (storedLocation == null) return null;
+
+        location = storedLocation.toLocation();
+        this.location = location;
+        return location;
+    }
+
+    /**
+     * Used to get the warp's location as it is stored.
+     * This is kept when the world is not loaded.
+     *
+     * @return The stored location.
+     */
+    public @Nullable WarpLocation getStoredLocation() {
+        return this.storedLocation;
     }
 
     public @NotNull ConfigurationSection getLocationAsSection() {
-        ConfigurationSection section = new MemoryConfigurationSection(new LinkedHashMap<>());
-        if (this.location == null) return section;
-        return this.getLocationAsConfigurationSection(this.location);
+        if (this.storedLocation == null) {
+            return new MemoryConfigurationSection(new LinkedHashMap<>());
+        }
+        return new MemoryConfigurationSection(this.storedLocation.toMap());
     }
 
     /**
      * Used to get the number of visits this warp has had.
+     * This includes visits that have not been saved yet.
      *
      * @return The number of visits.
      */
     public int getVisits() {
+        WarpLookup lookup = WarpLookup.getInstance();
+        if (lookup == null) return this.visits;
+        return (int) (this.visits + lookup.getVisitCounter().getPending(this.identifier));
+    }
+
+    /**
+     * Used to get the number of visits that
+     * have been saved to storage.
+     *
+     * @return The number of saved visits.
+     */
+    public int getSavedVisits() {
         return this.visits;
     }
 
@@ -246,6 +327,20 @@ public class Warp implements ConfigurationConvertable<Warp>, Replicable<Warp>, S
      */
     public @NotNull Warp setLocation(@Nullable Location location) {
         this.location = location;
+        this.storedLocation = location == null ? null : WarpLocation.of(location);
+        return this;
+    }
+
+    /**
+     * Used to set the location of the warp as it is stored.
+     * The location is resolved when its world is loaded.
+     *
+     * @param storedLocation The stored location.
+     * @return This instance.
+     */
+    public @NotNull Warp setStoredLocation(@Nullable WarpLocation storedLocation) {
+        this.storedLocation = storedLocation;
+        this.location = null;
         return this;
     }
 
@@ -257,8 +352,7 @@ public class Warp implements ConfigurationConvertable<Warp>, Replicable<Warp>, S
      * @return This instance.
      */
     public @NotNull Warp setLocationAsConfigurationSection(@NotNull ConfigurationSection section) {
-        this.location = this.getConfigurationSectionAsLocation(section);
-        return this;
+        return this.setStoredLocation(WarpLocation.of(section));
     }
 
     /**
@@ -275,28 +369,60 @@ public class Warp implements ConfigurationConvertable<Warp>, Replicable<Warp>, S
     /**
      * Used to increment the number of visits
      * to this warp.
+     * The visit is counted by the visit counter and
+     * saved with the next batch of visits, so there
+     * is no need to save the warp.
+     * The warp is also moved in the popularity ranking.
      *
      * @return This instance.
      */
     public @NotNull Warp incrementVisits() {
-        this.visits++;
+        CozyWarps plugin = CozyWarps.getInstance();
+        if (plugin == null) {
+            this.visits++;
+            return this;
+        }
+
+        plugin.countVisit(this);
         return this;
     }
 
     /**
-     * Used to check if the warp's location
-     * is a safe place to teleport.
+     * Used to get the last known health of the warp.
+     * This is not saved to storage.
      *
-     * @return True if the location is safe.
+     * @return The warp's health.
      */
-    public boolean isSafe() {
+    public @NotNull WarpHealth getHealth() {
+        return this.health;
+    }
 
-        // Check if the location doesn't exist.
-        if (this.location == null) return false;
+    /**
+     * Used to set the last known health of the warp.
+     * Registered warps are not changed in place, their
+     * health is recorded with {@link WarpRegistry#setHealth}.
+     *
+     * @param health The warp's health.
+     * @return This instance.
+     */
+    public @NotNull Warp setHealth(@NotNull WarpHealth health) {
+        if (this.health == health) return this;
+
+        this.health = health;
+        return this.markChanged();
+    }
 
-        // Check if the block below is air.
-        return this.location.clone()
-                .add(new Vector(0, -1, 0)).getBlock().getType() != Material.AIR;
+    /**
+     * Used to check if the warp's location
+     * is a safe place to teleport.
+     * The check does not load the chunk on the main thread
+     * and the future is completed on the main thread.
+     *
+     * @return The future result, true if the location is safe,
+     * or null if the chunk could not be loaded in the background.
+     */
+    public @NotNull CompletableFuture<Boolean> isSafe() {
+        return CozyWarps.getInstance().getSafetyChecker().check(this.getLocation());
     }
 
     /**
@@ -305,45 +431,139 @@ public class Warp implements ConfigurationConvertable<Warp>, Replicable<Warp>, S
      * @return The instance of this as an inventory item.
      */
     public @NotNull InventoryItem createInventoryItem() {
-        if (this.description != null) {
-            return new InventoryItem()
-                    .setMaterial(this.material)
-                    .setName("&e&l" + this.name)
-                    .setLore("&8&l&m------------",
-                            "&f" + this.description,
-                            "&7",
-                            "&fManager &a" + this.getManagerName(),
-                            "&fCreator &a" + this.getCreatorName(),
-                            "&fVisits &a" + this.visits);
+        final int visits = this.getVisits();
+        final String managerName = this.getManagerName();
+        final String creatorName = this.getCreatorName();
+
+        // Check if the text needs to be rendered again.
+        // Only a change to this warp's own player names counts.
+        Render render = this.render;
+        if (render == null || render.version != this.version || render.visits != visits
+                || !render.managerName.equals(managerName) || !render.creatorName.equals(creatorName)) {
+            render = this.render(visits, managerName, creatorName);
+            this.render = render;
         }
 
+        // The item is changed by the inventories,
+        // so each one is given its own lore.
         return new InventoryItem()
                 .setMaterial(this.material)
-                .setName("&e&l" + this.name)
-                .setLore("&8&l&m------------",
-                        "&fManager &a" + this.getManagerName(),
-                        "&fCreator &a" + this.getCreatorName(),
-                        "&fVisits &a" + this.visits);
+                .setName(render.name)
+                .setLore(render.lore.clone());
+    }
+
+    /**
+     * Used to mark the warp as changed, so the
+     * inventory item is rendered again.
+     *
+     * @return This instance.
+     */
+    public @NotNull Warp markChanged() {
+        this.version++;
+        return this;
+    }
+
+    private @NotNull Render render(int visits, @NotNull String managerName, @NotNull String creatorName) {
+        List<String> lore = new ArrayList<>();
+        lore.add("&8&l&m------------");
+
+        if (this.description != null) {
+            lore.add("&f" + this.description);
+            lore.add("&7");
+        }
+
+        lore.add("&fManager &a" + managerName);
+        lore.add("&fCreator &a" + creatorName);
+        lore.add("&fVisits &a" + visits);
+
+        // Warn players about warps that failed their last check.
+        if (this.health == WarpHealth.UNSAFE) {
+            lore.add("&7");
+            lore.add("&cThis warp may be unsafe.");
+        } else if (this.health == WarpHealth.ORPHANED) {
+            lore.add("&7");
+            lore.add("&cThis warp's world no longer exists.");
+        }
+
+        return new Render(this.version, visits, managerName, creatorName, "&e&l" + this.name, lore.toArray(new String[0]));
     }
 
     /**
      * Used to teleport to the warp location.
+     * When the location is checked, the player is
+     * teleported once the check has finished.
+     * If the warp's chunk could not be loaded in the background,
+     * the last known health is used and the warp is checked
+     * once the teleport has loaded its chunk.
      *
      * @param player The instance of the player to teleport.
      * @return This instance.
      */
     public @NotNull Warp teleport(PlayerUser player, Boolean checkSafe) {
+        CozyWarps plugin = CozyWarps.getInstance();
 
         // Check if the location is safe.
         if (checkSafe){
-            if (!this.isSafe()) {
-                player.sendMessage("&7&l> &7Teleportation failed, warp location is unsafe.");
-                return this;
-            }
+            this.isSafe().thenAccept(safe -> {
+                if (safe == null) {
+                    this.teleportUnchecked(plugin, player);
+                    return;
+                }
+
+                this.recordHealth(plugin, safe);
+                if (!player.getPlayer().isOnline()) return;
+                if (!safe) {
+                    player.sendMessage("&7&l> &7Teleportation failed, warp location is unsafe.");
+                    return;
+                }
+                this.teleportNow(plugin, player);
+            });
+            return this;
+        }
+
+        return this.teleportNow(plugin, player);
+    }
+
+    private void teleportUnchecked(@Nullable CozyWarps plugin, @NotNull PlayerUser player) {
+        if (!player.getPlayer().isOnline()) return;
+        if (this.health == WarpHealth.UNSAFE) {
+            player.sendMessage("&7&l> &7Teleportation failed, warp location is unsafe.");
+            return;
+        }
+
+        // The teleport loads the chunk, so it can now be checked.
+        this.teleportNow(plugin, player);
+        this.isSafe().thenAccept(safe -> {
+            if (safe != null) this.recordHealth(plugin, safe);
+        });
+    }
+
+    /**
+     * Used to record the result of a safety check
+     * on the registered warp.
+     */
+    private void recordHealth(@Nullable CozyWarps plugin, boolean safe) {
+        if (plugin == null) return;
+        plugin.getWarpRegistry().setHealth(this, safe ? WarpHealth.SAFE : WarpHealth.UNSAFE);
+    }
+
+    private @NotNull Warp teleportNow(@Nullable CozyWarps plugin, @NotNull PlayerUser player) {
+        Location location = this.getLocation();
+
+        // Check if the warp's world is loaded.
+        if (location == null) {
+            player.sendMessage("&7&l> &7Teleportation failed, the warp's world is not loaded.");
+            return this;
+        }
+
+        if (plugin == null) {
+            player.getPlayer().teleport(location);
+            return this;
         }
 
-        assert this.location != null;
-        player.getPlayer().teleport(this.location);
+        WarpTimer.Sample sample = plugin.getMetrics().start(WarpMetrics.TELEPORT);
+        player.getPlayer().teleport(location);
+        sample.stop();
         return this;
     }
 
@@ -388,6 +608,6 @@ public class Warp implements ConfigurationConvertable<Warp>, Replicable<Warp>, S
 
     @Override
     public int compareTo(@NotNull Warp warp) {
-        return Integer.compare(warp.getVisits(), this.visits);
+        return Integer.compare(warp.getVisits(), this.getVisits());
     }
 }
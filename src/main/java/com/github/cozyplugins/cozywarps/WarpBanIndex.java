@@ -0,0 +1,243 @@
+/*
+ * CozyWarps - Used to create player warps.
+ * Copyright (C) 2024 CozyPlugins
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.github.cozyplugins.cozywarps;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Represents the players banned from each owner's warps.
+ * Each owner has a set of player uuids stored as pairs of
+ * longs in an open addressing table, so checking a ban
+ * does not create any objects.
+ * <p>
+ * A set is never changed once it is in the index. Bans
+ * are changed on a copy that then replaces the owner's
+ * set while holding the owner's lock stripe, so bans can
+ * be checked from any thread without locking.
+ */
+public class WarpBanIndex {
+
+    private static final int LOCK_STRIPES = 64;
+
+    private final @NotNull Map<UUID, PlayerSet> ownerMap;
+    private final @NotNull WarpLockStripes lockStripes;
+
+    /**
+     * Represents a set of player uuids.
+     */
+    private static class PlayerSet {
+
+        private static final int DEFAULT_CAPACITY = 8;
+
+        private long[] keys;
+        private boolean[] used;
+        private int mask;
+        private int size;
+
+        private PlayerSet() {
+            this.allocate(DEFAULT_CAPACITY);
+        }
+
+        private @NotNull PlayerSet copy() {
+            PlayerSet copy = new PlayerSet();
+            copy.keys = this.keys.clone();
+            copy.used = this.used.clone();
+            copy.mask = this.mask;
+            copy.size = this.size;
+            return copy;
+        }
+
+        private boolean contains(long most, long least) {
+            return this.find(most, least) >= 0;
+        }
+
+        private boolean add(long most, long least) {
+            if (this.find(most, least) >= 0) return false;
+
+            // Keep the table at most half full.
+            if ((this.size + 1) * 2 > this.used.length) this.resize(this.used.length * 2);
+
+            this.insert(most, least);
+            this.size++;
+            return true;
+        }
+
+        private boolean remove(long most, long least) {
+            int slot = this.find(most, least);
+            if (slot < 0) return false;
+
+            // Shift the entries after it back, so no tombstones are needed.
+            int hole = slot;
+            int next = (hole + 1) & this.mask;
+            while (this.used[next]) {
+                int home = PlayerSet.hash(this.keys[next * 2], this.keys[next * 2 + 1]) & this.mask;
+                if (((next - home) & this.mask) >= ((next - hole) & this.mask)) {
+                    this.keys[hole * 2] = this.keys[next * 2];
+                    this.keys[hole * 2 + 1] = this.keys[next * 2 + 1];
+                    hole = next;
+                }
+                next = (next + 1) & this.mask;
+            }
+
+            this.used[hole] = false;
+            this.size--;
+            return true;
+        }
+
+        private @NotNull List<UUID> toList() {
+            List<UUID> list = new ArrayList<>(this.size);
+            for (int slot = 0; slot < this.used.length; slot++) {
+                if (!this.used[slot]) continue;
+                list.add(new UUID(this.keys[slot * 2], this.keys[slot * 2 + 1]));
+            }
+            return list;
+        }
+
+        private int find(long most, long least) {
+            int slot = PlayerSet.hash(most, least) & this.mask;
+            while (this.used[slot]) {
+                if (this.keys[slot * 2] == most && this.keys[slot * 2 + 1] == least) return slot;
+                slot = (slot + 1) & this.mask;
+            }
+            return -1;
+        }
+
+        private void insert(long most, long least) {
+            int slot = PlayerSet.hash(most, least) & this.mask;
+            while (this.used[slot]) slot = (slot + 1) & this.mask;
+
+            this.keys[slot * 2] = most;
+            this.keys[slot * 2 + 1] = least;
+            this.used[slot] = true;
+        }
+
+        private void resize(int capacity) {
+            long[] oldKeys = this.keys;
+            boolean[] oldUsed = this.used;
+            this.allocate(capacity);
+
+            for (int slot = 0; slot < oldUsed.length; slot++) {
+                if (!oldUsed[slot]) continue;
+                this.insert(oldKeys[slot * 2], oldKeys[slot * 2 + 1]);
+                this.size++;
+            }
+        }
+
+        private void allocate(int capacity) {
+            this.keys = new long[capacity * 2];
+            this.used = new boolean[capacity];
+            this.mask = capacity - 1;
+            this.size = 0;
+        }
+
+        private static int hash(long most, long least) {
+            long hash = (most ^ Long.rotateLeft(least, 32)) * 0x9E3779B97F4A7C15L;
+            return (int) (hash ^ (hash >>> 32));
+        }
+    }
+
+    /**
+     * Used to create an empty ban index.
+     */
+    public WarpBanIndex() {
+        this.ownerMap = new ConcurrentHashMap<>();
+        this.lockStripes = new WarpLockStripes(LOCK_STRIPES);
+    }
+
+    /**
+     * Used to check if a player is banned
+     * from an owner's warps.
+     *
+     * @param playerUuid The player's uuid.
+     * @param ownerUuid  The owner's uuid.
+     * @return True if the player is banned.
+     */
+    public boolean isBanned(@NotNull UUID playerUuid, @NotNull UUID ownerUuid) {
+        PlayerSet playerSet = this.ownerMap.get(ownerUuid);
+        if (playerSet == null) return false;
+        return playerSet.contains(playerUuid.getMostSignificantBits(), playerUuid.getLeastSignificantBits());
+    }
+
+    /**
+     * Used to get the players banned from
+     * an owner's warps.
+     *
+     * @param ownerUuid The owner's uuid.
+     * @return The list of banned player uuids.
+     */
+    public @NotNull List<UUID> getBannedPlayers(@NotNull UUID ownerUuid) {
+        PlayerSet playerSet = this.ownerMap.get(ownerUuid);
+        if (playerSet == null) return new ArrayList<>();
+        return playerSet.toList();
+    }
+
+    /**
+     * Used to ban a player from an owner's warps.
+     *
+     * @param playerUuid The player's uuid.
+     * @param ownerUuid  The owner's uuid.
+     * @return True if the player was not already banned.
+     */
+    public boolean ban(@NotNull UUID playerUuid, @NotNull UUID ownerUuid) {
+        final long most = playerUuid.getMostSignificantBits();
+        final long least = playerUuid.getLeastSignificantBits();
+
+        synchronized (this.lockStripes.getLock(ownerUuid)) {
+            PlayerSet playerSet = this.ownerMap.get(ownerUuid);
+            if (playerSet != null && playerSet.contains(most, least)) return false;
+
+            PlayerSet copy = playerSet == null ? new PlayerSet() : playerSet.copy();
+            copy.add(most, least);
+            this.ownerMap.put(ownerUuid, copy);
+            return true;
+        }
+    }
+
+    /**
+     * Used to unban a player from an owner's warps.
+     *
+     * @param playerUuid The player's uuid.
+     * @param ownerUuid  The owner's uuid.
+     * @return True if the player was banned.
+     */
+    public boolean unBan(@NotNull UUID playerUuid, @NotNull UUID ownerUuid) {
+        final long most = playerUuid.getMostSignificantBits();
+        final long least = playerUuid.getLeastSignificantBits();
+
+        synchronized (this.lockStripes.getLock(ownerUuid)) {
+            PlayerSet playerSet = this.ownerMap.get(ownerUuid);
+            if (playerSet == null || !playerSet.contains(most, least)) return false;
+
+            PlayerSet copy = playerSet.copy();
+            copy.remove(most, least);
+            if (copy.size == 0) {
+                this.ownerMap.remove(ownerUuid);
+            } else {
+                this.ownerMap.put(ownerUuid, copy);
+            }
+            return true;
+        }
+    }
+}
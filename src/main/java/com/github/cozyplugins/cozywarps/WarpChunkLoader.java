@@ -0,0 +1,104 @@
+/*
+ * CozyWarps - Used to create player warps.
+ * Copyright (C) 2024 CozyPlugins
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.github.cozyplugins.cozywarps;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Chunk;
+import org.bukkit.World;
+import org.bukkit.plugin.Plugin;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * Represents the loading of chunks away from the main thread.
+ * Paper can load and generate chunks in the background with
+ * World#getChunkAtAsync. Spigot can only load them on the
+ * main thread, so there the chunks are not loaded at all.
+ */
+public final class WarpChunkLoader {
+
+    /**
+     * Paper's World#getChunkAtAsync, or null
+     * when the server does not have it.
+     */
+    private static final @Nullable Method GET_CHUNK_AT_ASYNC = WarpChunkLoader.findGetChunkAtAsync();
+
+    /**
+     * Used to check if chunks can be loaded
+     * in the background on this server.
+     *
+     * @return True if chunks can be loaded in the background.
+     */
+    public static boolean isSupported() {
+        return GET_CHUNK_AT_ASYNC != null;
+    }
+
+    /**
+     * Used to load a chunk in the background.
+     *
+     * @param plugin The instance of the plugin, used to log failures.
+     * @param world  The world the chunk is in.
+     * @param chunkX The chunk's x coordinate.
+     * @param chunkZ The chunk's z coordinate.
+     * @return The future chunk, or null if the server
+     * cannot load chunks in the background.
+     */
+    @SuppressWarnings("unchecked")
+    public static @Nullable CompletableFuture<Chunk> getChunkAtAsync(@NotNull Plugin plugin,
+                                                                     @NotNull World world,
+                                                                     int chunkX,
+                                                                     int chunkZ) {
+        if (GET_CHUNK_AT_ASYNC == null) return null;
+
+        try {
+            return (CompletableFuture<Chunk>) GET_CHUNK_AT_ASYNC.invoke(world, chunkX, chunkZ);
+        } catch (ReflectiveOperationException exception) {
+            plugin.getLogger().warning("Unable to load a chunk asynchronously: " + exception.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Used to get an executor that runs on the main thread,
+     * straight away when it is already on the main thread.
+     *
+     * @param plugin The instance of the plugin.
+     * @return The executor.
+     */
+    public static @NotNull Executor getMainExecutor(@NotNull Plugin plugin) {
+        return runnable -> {
+            if (Bukkit.isPrimaryThread()) {
+                runnable.run();
+                return;
+            }
+            Bukkit.getScheduler().runTask(plugin, runnable);
+        };
+    }
+
+    private static @Nullable Method findGetChunkAtAsync() {
+        try {
+            return World.class.getMethod("getChunkAtAsync", int.class, int.class);
+        } catch (NoSuchMethodException exception) {
+            return null;
+        }
+    }
+}
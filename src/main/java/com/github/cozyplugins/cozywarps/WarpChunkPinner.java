@@ -0,0 +1,293 @@
+/*
+ * CozyWarps - Used to create player warps.
+ * Copyright (C) 2024 CozyPlugins
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.github.cozyplugins.cozywarps;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Chunk;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.scheduler.BukkitTask;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * Represents the chunk pinning of the most visited warps.
+ * The chunks around the top warps are kept loaded with
+ * plugin chunk tickets, so players arriving there do not
+ * wait for the chunks to load.
+ * <p>
+ * The pinned chunks are recomputed from the popularity
+ * ranking on a schedule. Chunks are added from the most
+ * visited warp down until the memory budget is used.
+ * <p>
+ * Adding a ticket loads the chunk on the main thread, so new
+ * chunks are pinned a few at a time until the time budget for
+ * the tick is used. On Paper each chunk is loaded in the
+ * background first, so its ticket does not load it.
+ */
+public class WarpChunkPinner implements Runnable {
+
+    /**
+     * A rough estimate of the memory a loaded chunk uses.
+     */
+    private static final int ESTIMATED_CHUNK_KILOBYTES = 256;
+
+    /**
+     * The number of ticks to wait before
+     * the chunks are first chosen.
+     */
+    private static final int START_DELAY_TICKS = 20;
+
+    private final @NotNull Plugin plugin;
+    private final @NotNull WarpRegistry registry;
+    private final int amountOfWarps;
+    private final int radius;
+    private final int maxChunks;
+    private final long budgetNanos;
+    private final @NotNull Executor mainExecutor;
+
+    private final @NotNull Map<UUID, Set<Long>> pinnedMap;
+    private final @NotNull Map<UUID, Set<Long>> wantedMap;
+    private final @NotNull Queue<PendingChunk> queue;
+    private final @NotNull Set<PendingChunk> loadingSet;
+    private long intervalTicks;
+    private long ticksWaiting;
+    private @Nullable BukkitTask task;
+
+    /**
+     * Represents a chunk waiting to be pinned.
+     *
+     * @param worldUuid The uuid of the chunk's world.
+     * @param key       The chunk's coordinates as a key.
+     */
+    private record PendingChunk(@NotNull UUID worldUuid, long key) {
+    }
+
+    /**
+     * Used to create a warp chunk pinner.
+     *
+     * @param plugin         The instance of the plugin.
+     * @param registry       The warp registry to rank warps from.
+     * @param amountOfWarps  The number of top warps to pin.
+     * @param radius         The radius of chunks around each warp.
+     * @param memoryBudgetMb The memory the pinned chunks may use.
+     * @param budgetMicros   The time pinning chunks may use each tick.
+     */
+    public WarpChunkPinner(@NotNull Plugin plugin,
+                           @NotNull WarpRegistry registry,
+                           int amountOfWarps,
+                           int radius,
+                           int memoryBudgetMb,
+                           long budgetMicros) {
+
+        this.plugin = plugin;
+        this.registry = registry;
+        this.amountOfWarps = Math.max(0, amountOfWarps);
+        this.radius = Math.max(0, radius);
+        this.maxChunks = Math.max(0, memoryBudgetMb) * 1024 / ESTIMATED_CHUNK_KILOBYTES;
+        this.budgetNanos = Math.max(1, budgetMicros) * 1000;
+        this.mainExecutor = WarpChunkLoader.getMainExecutor(plugin);
+        this.pinnedMap = new HashMap<>();
+        this.wantedMap = new HashMap<>();
+        this.queue = new ArrayDeque<>();
+        this.loadingSet = new HashSet<>();
+    }
+
+    /**
+     * Used to get the number of pinned chunks.
+     *
+     * @return The number of chunks.
+     */
+    public int getAmountPinned() {
+        int amount = 0;
+        for (Set<Long> chunkSet : this.pinnedMap.values()) amount += chunkSet.size();
+        return amount;
+    }
+
+    /**
+     * Used to start pinning chunks on the main thread.
+     *
+     * @param intervalTicks The number of ticks between recomputing.
+     * @return This instance.
+     */
+    public @NotNull WarpChunkPinner start(long intervalTicks) {
+        this.stop();
+        this.intervalTicks = Math.max(1, intervalTicks);
+        this.ticksWaiting = this.intervalTicks - START_DELAY_TICKS;
+        this.task = Bukkit.getScheduler().runTaskTimer(this.plugin, this, 1, 1);
+        return this;
+    }
+
+    /**
+     * Used to stop pinning and release
+     * every pinned chunk.
+     *
+     * @return This instance.
+     */
+    public @NotNull WarpChunkPinner stop() {
+        if (this.task != null) {
+            this.task.cancel();
+            this.task = null;
+        }
+
+        this.wantedMap.clear();
+        this.queue.clear();
+        this.release();
+        return this;
+    }
+
+    @Override
+    public void run() {
+
+        // Check if the chunks should be chosen again.
+        if (++this.ticksWaiting >= this.intervalTicks) {
+            this.ticksWaiting = 0;
+            this.recompute();
+        }
+
+        final long deadline = System.nanoTime() + this.budgetNanos;
+        while (!this.queue.isEmpty() && System.nanoTime() < deadline) {
+            this.pin(this.queue.poll());
+        }
+    }
+
+    /**
+     * Used to choose the chunks around the current top
+     * warps. The chunks that are no longer needed are
+     * released straight away and the new chunks are
+     * queued to be pinned. This should be called on the main thread.
+     *
+     * @return This instance.
+     */
+    public @NotNull WarpChunkPinner recompute() {
+        Map<UUID, Set<Long>> wantedMap = new HashMap<>();
+        int wanted = 0;
+
+        for (Warp warp : this.registry.getPopularWarps(0, this.amountOfWarps)) {
+            Location location = warp.getLocation();
+            if (location == null || location.getWorld() == null) continue;
+
+            // Check if the chunks around this warp would go over the budget.
+            int side = this.radius * 2 + 1;
+            if (wanted + side * side > this.maxChunks) break;
+
+            Set<Long> chunkSet = wantedMap.computeIfAbsent(location.getWorld().getUID(), uuid -> new HashSet<>());
+            int centerX = location.getBlockX() >> 4;
+            int centerZ = location.getBlockZ() >> 4;
+            for (int x = centerX - this.radius; x <= centerX + this.radius; x++) {
+                for (int z = centerZ - this.radius; z <= centerZ + this.radius; z++) {
+                    if (chunkSet.add(WarpChunkPinner.getKey(x, z))) wanted++;
+                }
+            }
+        }
+
+        this.wantedMap.clear();
+        this.wantedMap.putAll(wantedMap);
+        this.release();
+
+        // Queue the chunks that are newly wanted.
+        this.queue.clear();
+        for (Map.Entry<UUID, Set<Long>> entry : wantedMap.entrySet()) {
+            Set<Long> pinnedSet = this.pinnedMap.getOrDefault(entry.getKey(), Set.of());
+            for (long key : entry.getValue()) {
+                PendingChunk chunk = new PendingChunk(entry.getKey(), key);
+                if (pinnedSet.contains(key) || this.loadingSet.contains(chunk)) continue;
+                this.queue.add(chunk);
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Used to release the pinned chunks
+     * that are no longer wanted.
+     */
+    private void release() {
+        for (Map.Entry<UUID, Set<Long>> entry : this.pinnedMap.entrySet()) {
+            World world = Bukkit.getWorld(entry.getKey());
+            Set<Long> wantedSet = this.wantedMap.getOrDefault(entry.getKey(), Set.of());
+
+            entry.getValue().removeIf(key -> {
+                if (wantedSet.contains(key)) return false;
+                if (world != null) {
+                    world.removePluginChunkTicket(WarpChunkPinner.getX(key), WarpChunkPinner.getZ(key), this.plugin);
+                }
+                return true;
+            });
+        }
+        this.pinnedMap.values().removeIf(Set::isEmpty);
+    }
+
+    /**
+     * Used to pin a queued chunk. On Paper an unloaded chunk
+     * is loaded in the background and pinned once it has loaded.
+     */
+    private void pin(@NotNull PendingChunk chunk) {
+        World world = Bukkit.getWorld(chunk.worldUuid());
+        if (world == null) return;
+
+        final int x = WarpChunkPinner.getX(chunk.key());
+        final int z = WarpChunkPinner.getZ(chunk.key());
+        if (!world.isChunkLoaded(x, z)) {
+            CompletableFuture<Chunk> future = WarpChunkLoader.getChunkAtAsync(this.plugin, world, x, z);
+            if (future != null) {
+                this.loadingSet.add(chunk);
+                future.whenCompleteAsync((loaded, throwable) -> {
+                    this.loadingSet.remove(chunk);
+                    if (throwable == null) this.addTicket(world, chunk);
+                }, this.mainExecutor);
+                return;
+            }
+        }
+
+        // Otherwise, the ticket loads the chunk.
+        this.addTicket(world, chunk);
+    }
+
+    private void addTicket(@NotNull World world, @NotNull PendingChunk chunk) {
+        Set<Long> wantedSet = this.wantedMap.get(chunk.worldUuid());
+        if (wantedSet == null || !wantedSet.contains(chunk.key())) return;
+        if (!this.pinnedMap.computeIfAbsent(chunk.worldUuid(), uuid -> new HashSet<>()).add(chunk.key())) return;
+
+        world.addPluginChunkTicket(WarpChunkPinner.getX(chunk.key()), WarpChunkPinner.getZ(chunk.key()), this.plugin);
+    }
+
+    private static long getKey(int x, int z) {
+        return ((long) x << 32) | (z & 0xFFFFFFFFL);
+    }
+
+    private static int getX(long key) {
+        return (int) (key >> 32);
+    }
+
+    private static int getZ(long key) {
+        return (int) key;
+    }
+}
@@ -0,0 +1,45 @@
+/*
+ * CozyWarps - Used to create player warps.
+ * Copyright (C) 2024 CozyPlugins
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.github.cozyplugins.cozywarps;
+
+/**
+ * Represents the last known health of a warp.
+ */
+public enum WarpHealth {
+
+    /**
+     * The warp has not been checked yet.
+     */
+    UNKNOWN,
+
+    /**
+     * The warp's location was safe when it was checked.
+     */
+    SAFE,
+
+    /**
+     * The warp's location was unsafe when it was checked.
+     */
+    UNSAFE,
+
+    /**
+     * The warp's world no longer exists.
+     */
+    ORPHANED
+}
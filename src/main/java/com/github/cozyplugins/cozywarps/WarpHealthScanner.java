@@ -0,0 +1,154 @@
+/*
+ * CozyWarps - Used to create player warps.
+ * Copyright (C) 2024 CozyPlugins
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.github.cozyplugins.cozywarps;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.scheduler.BukkitTask;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.UUID;
+
+/**
+ * Represents the background warp health scanner.
+ * Every tick it checks warps until its time budget is
+ * used, then carries on from the same warp next tick.
+ * Once every warp has been checked, it rests before
+ * starting the next pass.
+ * <p>
+ * Only warps in loaded chunks are checked, so the scanner
+ * never loads chunks and the whole check fits in its budget.
+ * The other warps are checked when a player teleports.
+ * <p>
+ * The result is recorded on the registered warp, so the
+ * inventories can show unsafe warps without checking them.
+ */
+public class WarpHealthScanner implements Runnable {
+
+    private final @NotNull Plugin plugin;
+    private final @NotNull WarpRegistry registry;
+    private final @NotNull WarpSafetyChecker safetyChecker;
+    private final long budgetNanos;
+    private final long restTicks;
+
+    private final @NotNull Queue<UUID> queue;
+    private long ticksResting;
+    private @Nullable BukkitTask task;
+
+    /**
+     * Used to create a warp health scanner.
+     *
+     * @param plugin        The instance of the plugin.
+     * @param registry      The warp registry to scan.
+     * @param safetyChecker The warp safety checker.
+     * @param budgetMicros  The time the scanner may use each tick.
+     * @param restTicks     The number of ticks to rest between passes.
+     */
+    public WarpHealthScanner(@NotNull Plugin plugin,
+                             @NotNull WarpRegistry registry,
+                             @NotNull WarpSafetyChecker safetyChecker,
+                             long budgetMicros,
+                             long restTicks) {
+
+        this.plugin = plugin;
+        this.registry = registry;
+        this.safetyChecker = safetyChecker;
+        this.budgetNanos = Math.max(1, budgetMicros) * 1000;
+        this.restTicks = Math.max(0, restTicks);
+        this.queue = new ArrayDeque<>();
+
+        // Start the first pass straight away.
+        this.ticksResting = this.restTicks;
+    }
+
+    /**
+     * Used to start scanning on the main thread.
+     *
+     * @return This instance.
+     */
+    public @NotNull WarpHealthScanner start() {
+        this.stop();
+        this.task = Bukkit.getScheduler().runTaskTimer(this.plugin, this, 1, 1);
+        return this;
+    }
+
+    /**
+     * Used to stop scanning.
+     *
+     * @return This instance.
+     */
+    public @NotNull WarpHealthScanner stop() {
+        if (this.task != null) {
+            this.task.cancel();
+            this.task = null;
+        }
+        return this;
+    }
+
+    @Override
+    public void run() {
+
+        // Check if the pass has finished.
+        if (this.queue.isEmpty()) {
+            if (this.ticksResting++ < this.restTicks) return;
+
+            this.ticksResting = 0;
+            for (Warp warp : this.registry.getAllWarps()) this.queue.add(warp.getIdentifier());
+        }
+
+        final long deadline = System.nanoTime() + this.budgetNanos;
+        while (!this.queue.isEmpty() && System.nanoTime() < deadline) {
+            Warp warp = this.registry.getWarp(this.queue.poll());
+            if (warp == null) continue;
+            this.scan(warp);
+        }
+    }
+
+    /**
+     * Used to check the health of a warp.
+     * Warps in unloaded chunks are skipped.
+     *
+     * @param warp The instance of the warp.
+     */
+    private void scan(@NotNull Warp warp) {
+        Location location = warp.getLocation();
+
+        // Check if the warp's world no longer exists.
+        if (location == null || location.getWorld() == null
+                || Bukkit.getWorld(location.getWorld().getUID()) == null) {
+            this.registry.setHealth(warp, WarpHealth.ORPHANED);
+            return;
+        }
+
+        // Check if the warp's chunk is loaded.
+        if (!location.getWorld().isChunkLoaded(location.getBlockX() >> 4, location.getBlockZ() >> 4)) return;
+
+        this.safetyChecker.check(location).whenComplete((safe, throwable) -> {
+            if (throwable != null || safe == null) return;
+
+            // The warp may have been edited or removed during the check,
+            // so the result is only recorded on the registered warp.
+            this.registry.setHealth(warp, safe ? WarpHealth.SAFE : WarpHealth.UNSAFE);
+        });
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * CozyWarps - Used to create player warps.
+ * Copyright (C) 2024 CozyPlugins
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.github.cozyplugins.cozywarps;
+
+import com.github.smuddgge.squishyconfiguration.interfaces.ConfigurationSection;
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Represents a warp's location as it is stored.
+ * The world is kept by name so the location is not
+ * lost when the world is not loaded, for example
+ * when a world plugin loads it after this plugin.
+ *
+ * @param worldName The name of the world.
+ * @param x         The block x coordinate.
+ * @param y         The block y coordinate.
+ * @param z         The block z coordinate.
+ * @param pitch     The stored pitch.
+ * @param yaw       The stored yaw.
+ */
+public record WarpLocation(@NotNull String worldName, int x, int y, int z, float pitch, float yaw) {
+
+    /**
+     * Used to get the stored form of a location.
+     *
+     * @param location The instance of the location.
+     * @return The stored location, or null if the
+     * location does not have a world.
+     */
+    public static @Nullable WarpLocation of(@NotNull Location location) {
+        if (location.getWorld() == null) return null;
+        return new WarpLocation(
+                location.getWorld().getName(),
+                location.getBlockX(),
+                location.getBlockY(),
+                location.getBlockZ(),
+                location.getPitch(),
+                location.getYaw()
+        );
+    }
+
+    /**
+     * Used to read a location configuration section.
+     *
+     * @param section The instance of the configuration section.
+     * @return The stored location, or null if the
+     * section does not contain a world.
+     */
+    public static @Nullable WarpLocation of(@NotNull ConfigurationSection section) {
+        String worldName = section.getString("world");
+        if (worldName == null) return null;
+        return new WarpLocation(
+                worldName,
+                (int) section.getDouble("x"),
+                (int) section.getDouble("y"),
+                (int) section.getDouble("z"),
+                Float.parseFloat(section.getString("pitch", "0")),
+                Float.parseFloat(section.getString("yaw", "0"))
+        );
+    }
+
+    /**
+     * Used to resolve the location in its world.
+     *
+     * @return The location, or null if the
+     * world is not loaded.
+     */
+    public @Nullable Location toLocation() {
+        World world = Bukkit.getWorld(this.worldName);
+        if (world == null) return null;
+
+        return new Location(world, this.x, this.y, this.z, this.yaw, this.pitch);
+    }
+
+    /**
+     * Used to get the location as a configuration map.
+     *
+     * @return The configuration map.
+     */
+    public @NotNull Map<String, Object> toMap() {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("x", this.x);
+        map.put("y", this.y);
+        map.put("z", this.z);
+        map.put("pitch", Float.toString(this.pitch));
+        map.put("yaw", Float.toString(this.yaw));
+        map.put("world", this.worldName);
+        return map;
+    }
+}
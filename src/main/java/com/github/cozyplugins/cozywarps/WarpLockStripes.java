@@ -0,0 +1,61 @@
+/*
+ * CozyWarps - Used to create player warps.
+ * Copyright (C) 2024 CozyPlugins
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.github.cozyplugins.cozywarps;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.UUID;
+
+/**
+ * Represents a fixed set of locks shared out by uuid.
+ * Changes to the same warp or owner always use the same
+ * lock, while changes to different ones rarely have to
+ * wait for each other.
+ */
+public class WarpLockStripes {
+
+    private final @NotNull Object[] locks;
+    private final int mask;
+
+    /**
+     * Used to create a set of lock stripes.
+     *
+     * @param stripes The number of locks, rounded
+     *                up to a power of two.
+     */
+    public WarpLockStripes(int stripes) {
+        int size = Integer.highestOneBit(Math.max(1, stripes - 1)) << 1;
+        this.locks = new Object[size];
+        for (int index = 0; index < size; index++) this.locks[index] = new Object();
+        this.mask = size - 1;
+    }
+
+    /**
+     * Used to get the lock for a uuid.
+     * Synchronize on the lock while changing
+     * the state kept for the uuid.
+     *
+     * @param uuid The warp or owner's uuid.
+     * @return The lock.
+     */
+    public @NotNull Object getLock(@NotNull UUID uuid) {
+        long hash = (uuid.getMostSignificantBits() ^ uuid.getLeastSignificantBits()) * 0x9E3779B97F4A7C15L;
+        return this.locks[(int) (hash >>> 32) & this.mask];
+    }
+}
@@ -0,0 +1,282 @@
+/*
+ * CozyWarps - Used to create player warps.
+ * Copyright (C) 2024 CozyPlugins
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.github.cozyplugins.cozywarps;
+
+import com.github.cozyplugins.cozywarps.metrics.WarpMetrics;
+import com.github.cozyplugins.cozywarps.metrics.WarpTimer;
+import org.bukkit.Location;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Represents the lookups of warps, bans, visits
+ * and player names that are served from memory.
+ * <p>
+ * The plugin's lookup methods use this, and it does not
+ * need a server, so the lookups can be measured on their own.
+ * Every lookup can be used from any thread.
+ */
+public class WarpLookup {
+
+    private static @Nullable WarpLookup instance;
+
+    private final @NotNull WarpRegistry registry;
+    private final @NotNull WarpBanIndex banIndex;
+    private final @NotNull WarpVisitSet visitSet;
+    private final @NotNull WarpVisitCounter visitCounter;
+    private final @NotNull PlayerNameCache nameCache;
+    private final @NotNull WarpMetrics metrics;
+    private final double maxNearbyRadius;
+
+    private final @NotNull WarpTimer lookupWarpTimer;
+    private final @NotNull WarpTimer lookupBannedTimer;
+    private final @NotNull WarpTimer lookupVisitedTimer;
+
+    /**
+     * Used to create the warp lookups.
+     *
+     * @param registry        The registry of warps.
+     * @param banIndex        The index of bans.
+     * @param visitSet        The set of recent visits.
+     * @param visitCounter    The counter of visits that are not saved yet.
+     * @param nameCache       The cache of player names.
+     * @param metrics         The metrics to time the lookups with.
+     * @param maxNearbyRadius The largest distance searched for nearby warps.
+     */
+    public WarpLookup(@NotNull WarpRegistry registry,
+                      @NotNull WarpBanIndex banIndex,
+                      @NotNull WarpVisitSet visitSet,
+                      @NotNull WarpVisitCounter visitCounter,
+                      @NotNull PlayerNameCache nameCache,
+                      @NotNull WarpMetrics metrics,
+                      double maxNearbyRadius) {
+
+        this.registry = registry;
+        this.banIndex = banIndex;
+        this.visitSet = visitSet;
+        this.visitCounter = visitCounter;
+        this.nameCache = nameCache;
+        this.metrics = metrics;
+        this.maxNearbyRadius = maxNearbyRadius;
+
+        this.lookupWarpTimer = metrics.getTimer(WarpMetrics.LOOKUP_WARP);
+        this.lookupBannedTimer = metrics.getTimer(WarpMetrics.LOOKUP_BANNED);
+        this.lookupVisitedTimer = metrics.getTimer(WarpMetrics.LOOKUP_VISITED);
+    }
+
+    /**
+     * Used to make warps read their visits
+     * and player names from these lookups.
+     *
+     * @return This instance.
+     */
+    public @NotNull WarpLookup install() {
+        WarpLookup.instance = this;
+        return this;
+    }
+
+    /**
+     * Used to get the installed lookups.
+     *
+     * @return The lookups, or null before they are installed.
+     */
+    public static @Nullable WarpLookup getInstance() {
+        return WarpLookup.instance;
+    }
+
+    /**
+     * Used to get the counter of visits
+     * that have not been saved yet.
+     *
+     * @return The visit counter.
+     */
+    public @NotNull WarpVisitCounter getVisitCounter() {
+        return this.visitCounter;
+    }
+
+    /**
+     * Used to get the cache of player names.
+     *
+     * @return The player name cache.
+     */
+    public @NotNull PlayerNameCache getNameCache() {
+        return this.nameCache;
+    }
+
+    /**
+     * Used to get a warp given its unique identifier.
+     *
+     * @param identifier The warps unique identifier.
+     * @return The optional warp.
+     */
+    public @NotNull Optional<Warp> getWarp(@NotNull UUID identifier) {
+        return Optional.ofNullable(this.registry.getWarp(identifier));
+    }
+
+    /**
+     * Used to get a warp a player owns.
+     * A player cannot have two warps named the same.
+     *
+     * @param playerUuid The player's uuid.
+     * @param warpName   The warp's name.
+     * @return The optional warp.
+     */
+    public @NotNull Optional<Warp> getWarp(@NotNull UUID playerUuid, @NotNull String warpName) {
+        final long startNanos = System.nanoTime();
+        try {
+            for (Warp warp : this.registry.getAllWarps(playerUuid)) {
+                if (!warp.getName().equals(warpName)) continue;
+                return Optional.of(warp);
+            }
+            return Optional.empty();
+        } finally {
+            this.lookupWarpTimer.record(System.nanoTime() - startNanos, 0);
+        }
+    }
+
+    /**
+     * Used to get all warps.
+     * This is a read only view of the loaded warps,
+     * copy it before sorting.
+     *
+     * @return The collection of all warps.
+     */
+    public @NotNull Collection<Warp> getAllWarps() {
+        return this.registry.getAllWarps();
+    }
+
+    /**
+     * Used to get all warps a player owns.
+     *
+     * @param playerUuid The player uuid.
+     * @return The list of their warps.
+     */
+    public @NotNull List<Warp> getAllWarps(@NotNull UUID playerUuid) {
+        return new ArrayList<>(this.registry.getAllWarps(playerUuid));
+    }
+
+    /**
+     * Used to get the number of loaded warps.
+     *
+     * @return The number of warps.
+     */
+    public int getAmountOfWarps() {
+        return this.registry.size();
+    }
+
+    /**
+     * Used to get the number of warps owned by a specific player.
+     *
+     * @param uuid The players uuid.
+     * @return The number of warps they own.
+     */
+    public int getAmountOwned(@NotNull UUID uuid) {
+        return this.registry.getAmountManaged(uuid);
+    }
+
+    /**
+     * Used to get a page of warps ordered by popularity.
+     *
+     * @param offset The position of the first warp.
+     * @param limit  The maximum number of warps.
+     * @return The list of warps.
+     */
+    public @NotNull List<Warp> getPopularWarps(int offset, int limit) {
+        return this.registry.getPopularWarps(offset, limit);
+    }
+
+    /**
+     * Used to search for warps by their name and description.
+     *
+     * @param query The search query.
+     * @param limit The maximum number of results.
+     * @return The matching warps ordered by popularity.
+     */
+    public @NotNull List<Warp> searchWarps(@NotNull String query, int limit) {
+        WarpTimer.Sample sample = this.metrics.start(WarpMetrics.LOOKUP_SEARCH);
+        List<Warp> results = this.registry.searchWarps(query, limit);
+        sample.stop();
+        return results;
+    }
+
+    /**
+     * Used to get the warps within a distance of a location.
+     * The distance is limited to the maximum nearby radius.
+     *
+     * @param location The location to search around.
+     * @param radius   The distance in blocks.
+     * @param limit    The maximum number of results.
+     * @return The warps in the same world, closest first.
+     */
+    public @NotNull List<Warp> getNearbyWarps(@NotNull Location location, double radius, int limit) {
+        WarpTimer.Sample sample = this.metrics.start(WarpMetrics.LOOKUP_NEARBY);
+        List<Warp> results = this.registry.getNearbyWarps(location, Math.min(radius, this.maxNearbyRadius), limit);
+        sample.stop();
+        return results;
+    }
+
+    /**
+     * Used to get the closest warps to a location.
+     *
+     * @param location The location to search around.
+     * @param amount   The number of warps.
+     * @return The warps in the same world, closest first.
+     */
+    public @NotNull List<Warp> getNearestWarps(@NotNull Location location, int amount) {
+        WarpTimer.Sample sample = this.metrics.start(WarpMetrics.LOOKUP_NEARBY);
+        List<Warp> results = this.registry.getNearestWarps(location, amount);
+        sample.stop();
+        return results;
+    }
+
+    /**
+     * Used to check if the set of visits contains a certain
+     * warp uuid and player uuid.
+     *
+     * @param warpUuid   The warp uuid to check.
+     * @param playerUuid The player uuid to check.
+     * @return True if they have visited recently.
+     */
+    public boolean hasVisited(@NotNull UUID warpUuid, @NotNull UUID playerUuid) {
+        final long startNanos = System.nanoTime();
+        boolean visited = this.visitSet.contains(warpUuid, playerUuid, System.currentTimeMillis());
+        this.lookupVisitedTimer.record(System.nanoTime() - startNanos, 0);
+        return visited;
+    }
+
+    /**
+     * Used to check if a player is banned from another player's warps.
+     *
+     * @param playerUuid The players uuid.
+     * @param ownerUuid  The owners uuid.
+     * @return True if they are banned.
+     */
+    public boolean isBanned(@NotNull UUID playerUuid, @NotNull UUID ownerUuid) {
+        // Lookups are only timed, so they stay free of allocations.
+        final long startNanos = System.nanoTime();
+        boolean banned = this.banIndex.isBanned(playerUuid, ownerUuid);
+        this.lookupBannedTimer.record(System.nanoTime() - startNanos, 0);
+        return banned;
+    }
+}
@@ -0,0 +1,148 @@
+/*
+ * CozyWarps - Used to create player warps.
+ * Copyright (C) 2024 CozyPlugins
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.github.cozyplugins.cozywarps;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Represents a case insensitive prefix tree of names,
+ * used for tab completion. Completing a prefix only
+ * visits the prefix and the names that are returned.
+ * <p>
+ * The names keep their case and the same name
+ * can be added more than once.
+ */
+public class WarpNameTrie {
+
+    private final @NotNull Node root;
+
+    /**
+     * Represents a character in the tree.
+     */
+    private static class Node {
+
+        private final @NotNull Map<Character, Node> childMap = new TreeMap<>();
+        private final @NotNull Map<String, Integer> nameMap = new TreeMap<>();
+        private int size;
+    }
+
+    /**
+     * Used to create an empty name trie.
+     */
+    public WarpNameTrie() {
+        this.root = new Node();
+    }
+
+    /**
+     * Used to check if the trie contains no names.
+     *
+     * @return True if there are no names.
+     */
+    public boolean isEmpty() {
+        return this.root.size == 0;
+    }
+
+    /**
+     * Used to add a name.
+     *
+     * @param name The name to add.
+     * @return This instance.
+     */
+    public @NotNull WarpNameTrie add(@NotNull String name) {
+        String key = name.toLowerCase(Locale.ROOT);
+
+        Node node = this.root;
+        node.size++;
+        for (int index = 0; index < key.length(); index++) {
+            node = node.childMap.computeIfAbsent(key.charAt(index), character -> new Node());
+            node.size++;
+        }
+        node.nameMap.merge(name, 1, Integer::sum);
+        return this;
+    }
+
+    /**
+     * Used to remove one copy of a name.
+     *
+     * @param name The name to remove.
+     * @return True if the name was in the trie.
+     */
+    public boolean remove(@NotNull String name) {
+        String key = name.toLowerCase(Locale.ROOT);
+
+        // Check the name is in the trie before changing the sizes.
+        Node node = this.root;
+        for (int index = 0; index < key.length() && node != null; index++) node = node.childMap.get(key.charAt(index));
+        if (node == null || !node.nameMap.containsKey(name)) return false;
+
+        node.nameMap.computeIfPresent(name, (value, count) -> count > 1 ? count - 1 : null);
+
+        // Remove the nodes that no longer lead to a name.
+        node = this.root;
+        node.size--;
+        for (int index = 0; index < key.length(); index++) {
+            Node child = node.childMap.get(key.charAt(index));
+            if (--child.size == 0) {
+                node.childMap.remove(key.charAt(index));
+                return true;
+            }
+            node = child;
+        }
+        return true;
+    }
+
+    /**
+     * Used to get the names that start with a prefix,
+     * ignoring case, in alphabetical order.
+     *
+     * @param prefix The prefix.
+     * @param limit  The maximum number of names.
+     * @return The list of names.
+     */
+    public @NotNull List<String> complete(@NotNull String prefix, int limit) {
+        List<String> list = new ArrayList<>();
+        if (limit <= 0) return list;
+
+        String key = prefix.toLowerCase(Locale.ROOT);
+        Node node = this.root;
+        for (int index = 0; index < key.length() && node != null; index++) node = node.childMap.get(key.charAt(index));
+        if (node == null) return list;
+
+        WarpNameTrie.collect(node, limit, list);
+        return list;
+    }
+
+    private static void collect(@NotNull Node node, int limit, @NotNull List<String> list) {
+        for (String name : node.nameMap.keySet()) {
+            if (list.size() >= limit) return;
+            list.add(name);
+        }
+
+        for (Node child : node.childMap.values()) {
+            if (list.size() >= limit) return;
+            WarpNameTrie.collect(child, limit, list);
+        }
+    }
+}
@@ -0,0 +1,248 @@
+/*
+ * CozyWarps - Used to create player warps.
+ * Copyright (C) 2024 CozyPlugins
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.github.cozyplugins.cozywarps;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.UUID;
+
+/**
+ * Represents the warps ordered by popularity.
+ * The most visited warp comes first and warps with
+ * the same visits are ordered by their identifier.
+ * <p>
+ * This is a treap where each node knows the size of its
+ * subtree, so a warp can be moved when it is visited and
+ * a page can be sliced without sorting every warp.
+ */
+public class WarpRanking {
+
+    private final @NotNull Map<UUID, Node> nodeMap;
+    private final @NotNull SplittableRandom random;
+    private @Nullable Node root;
+
+    /**
+     * Represents a ranked warp.
+     */
+    private static class Node {
+
+        private final @NotNull UUID identifier;
+        private final int score;
+        private final int priority;
+        private @NotNull Warp warp;
+        private int size;
+        private @Nullable Node left;
+        private @Nullable Node right;
+
+        private Node(@NotNull Warp warp, int score, int priority) {
+            this.identifier = warp.getIdentifier();
+            this.score = score;
+            this.priority = priority;
+            this.warp = warp;
+            this.size = 1;
+        }
+    }
+
+    /**
+     * Used to create an empty warp ranking.
+     */
+    public WarpRanking() {
+        this.nodeMap = new HashMap<>();
+        this.random = new SplittableRandom();
+    }
+
+    /**
+     * Used to get the number of ranked warps.
+     *
+     * @return The number of warps.
+     */
+    public int size() {
+        return this.nodeMap.size();
+    }
+
+    /**
+     * Used to add a warp or move it to the
+     * position of its current visits.
+     *
+     * @param warp The instance of the warp.
+     * @return This instance.
+     */
+    public @NotNull WarpRanking update(@NotNull Warp warp) {
+        final int score = warp.getVisits();
+
+        Node node = this.nodeMap.get(warp.getIdentifier());
+        if (node != null) {
+
+            // Check if the warp is already in the right position.
+            if (node.score == score) {
+                node.warp = warp;
+                return this;
+            }
+            this.root = WarpRanking.remove(this.root, node);
+        }
+
+        node = new Node(warp, score, this.random.nextInt());
+        this.nodeMap.put(warp.getIdentifier(), node);
+        this.root = WarpRanking.insert(this.root, node);
+        return this;
+    }
+
+    /**
+     * Used to remove a warp from the ranking.
+     *
+     * @param identifier The warp's unique identifier.
+     * @return True if the warp was ranked.
+     */
+    public boolean remove(@NotNull UUID identifier) {
+        Node node = this.nodeMap.remove(identifier);
+        if (node == null) return false;
+
+        this.root = WarpRanking.remove(this.root, node);
+        return true;
+    }
+
+    /**
+     * Used to get a slice of the ranking,
+     * such as the warps on a page.
+     *
+     * @param offset The position of the first warp.
+     * @param limit  The maximum number of warps.
+     * @return The warps in order of popularity.
+     */
+    public @NotNull List<Warp> range(int offset, int limit) {
+        List<Warp> list = new ArrayList<>(Math.max(0, Math.min(limit, this.size() - offset)));
+        if (offset < 0 || limit <= 0) return list;
+
+        WarpRanking.collect(this.root, offset, limit, list);
+        return list;
+    }
+
+    /**
+     * Used to remove every warp from the ranking.
+     */
+    public void clear() {
+        this.nodeMap.clear();
+        this.root = null;
+    }
+
+    private static void collect(@Nullable Node node, int offset, int limit, @NotNull List<Warp> list) {
+        if (node == null || list.size() >= limit) return;
+
+        // Skip the left subtree if the slice starts after it.
+        int leftSize = WarpRanking.size(node.left);
+        if (offset < leftSize) WarpRanking.collect(node.left, offset, limit, list);
+        if (list.size() >= limit) return;
+
+        if (offset <= leftSize) list.add(node.warp);
+        WarpRanking.collect(node.right, Math.max(0, offset - leftSize - 1), limit, list);
+    }
+
+    private static @NotNull Node insert(@Nullable Node root, @NotNull Node node) {
+        if (root == null) return node;
+
+        if (node.priority > root.priority) {
+            Node[] split = WarpRanking.split(root, node);
+            node.left = split[0];
+            node.right = split[1];
+            WarpRanking.resize(node);
+            return node;
+        }
+
+        if (WarpRanking.compare(node, root) < 0) {
+            root.left = WarpRanking.insert(root.left, node);
+        } else {
+            root.right = WarpRanking.insert(root.right, node);
+        }
+        WarpRanking.resize(root);
+        return root;
+    }
+
+    private static @Nullable Node remove(@Nullable Node root, @NotNull Node node) {
+        if (root == null) return null;
+        if (root == node) return WarpRanking.merge(root.left, root.right);
+
+        if (WarpRanking.compare(node, root) < 0) {
+            root.left = WarpRanking.remove(root.left, node);
+        } else {
+            root.right = WarpRanking.remove(root.right, node);
+        }
+        WarpRanking.resize(root);
+        return root;
+    }
+
+    /**
+     * Used to split a tree into the nodes ranked
+     * before the key and the rest.
+     */
+    private static Node[] split(@Nullable Node root, @NotNull Node key) {
+        if (root == null) return new Node[2];
+
+        if (WarpRanking.compare(root, key) < 0) {
+            Node[] split = WarpRanking.split(root.right, key);
+            root.right = split[0];
+            WarpRanking.resize(root);
+            split[0] = root;
+            return split;
+        }
+
+        Node[] split = WarpRanking.split(root.left, key);
+        root.left = split[1];
+        WarpRanking.resize(root);
+        split[1] = root;
+        return split;
+    }
+
+    /**
+     * Used to join two trees where every node in
+     * the first is ranked before the second.
+     */
+    private static @Nullable Node merge(@Nullable Node first, @Nullable Node second) {
+        if (first == null) return second;
+        if (second == null) return first;
+
+        if (first.priority > second.priority) {
+            first.right = WarpRanking.merge(first.right, second);
+            WarpRanking.resize(first);
+            return first;
+        }
+
+        second.left = WarpRanking.merge(first, second.left);
+        WarpRanking.resize(second);
+        return second;
+    }
+
+    private static int compare(@NotNull Node node, @NotNull Node other) {
+        if (node.score != other.score) return Integer.compare(other.score, node.score);
+        return node.identifier.compareTo(other.identifier);
+    }
+
+    private static int size(@Nullable Node node) {
+        return node == null ? 0 : node.size;
+    }
+
+    private static void resize(@NotNull Node node) {
+        node.size = 1 + WarpRanking.size(node.left) + WarpRanking.size(node.right);
+    }
+}
@@ -0,0 +1,367 @@
+/*
+ * CozyWarps - Used to create player warps.
+ * Copyright (C) 2024 CozyPlugins
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.github.cozyplugins.cozywarps;
+
+import org.bukkit.Location;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Represents the resident set of warps.
+ * Warps are loaded from storage once and then
+ * kept in memory, keyed by their unique identifier.
+ * A secondary index groups the warps by their manager
+ * and a ranking orders them by popularity.
+ * The search index finds them by their name and description.
+ * <p>
+ * The registry can be used from any thread. Warps are looked
+ * up without locking, and each manager's warps are replaced
+ * with a new read only map when they change, so a reader never
+ * sees a half changed map. Changes to a warp hold its lock
+ * stripe, and the ranking, search, spatial and name indexes
+ * are only used while holding the index lock.
+ */
+public class WarpRegistry {
+
+    private static final int LOCK_STRIPES = 64;
+
+    private final @NotNull Map<UUID, Warp> warpMap;
+    private final @NotNull Collection<Warp> warpView;
+
+    private final @NotNull Map<UUID, Map<UUID, Warp>> managerIndex;
+    private final @NotNull Map<UUID, UUID> indexedManagerMap;
+    private final @NotNull WarpLockStripes lockStripes;
+
+    private final @NotNull Object indexLock;
+    private final @NotNull Map<UUID, WarpNameTrie> warpNameIndex;
+    private final @NotNull Map<UUID, String> indexedNameMap;
+    private final @NotNull WarpRanking ranking;
+    private final @NotNull WarpSearchIndex searchIndex;
+    private final @NotNull WarpSpatialIndex spatialIndex;
+
+    /**
+     * Used to create an empty warp registry.
+     */
+    public WarpRegistry() {
+        this.warpMap = new ConcurrentHashMap<>();
+        this.warpView = Collections.unmodifiableCollection(this.warpMap.values());
+        this.managerIndex = new ConcurrentHashMap<>();
+        this.indexedManagerMap = new ConcurrentHashMap<>();
+        this.lockStripes = new WarpLockStripes(LOCK_STRIPES);
+        this.indexLock = new Object();
+        this.warpNameIndex = new HashMap<>();
+        this.indexedNameMap = new HashMap<>();
+        this.ranking = new WarpRanking();
+        this.searchIndex = new WarpSearchIndex();
+        this.spatialIndex = new WarpSpatialIndex();
+    }
+
+    /**
+     * Used to get the lock held while a warp is changed.
+     * Hold it while changing a registered warp instance,
+     * so the change and putting it again are not mixed
+     * with a change from another thread.
+     *
+     * @param identifier The warp's unique identifier.
+     * @return The lock for the warp.
+     */
+    public @NotNull Object getLock(@NotNull UUID identifier) {
+        return this.lockStripes.getLock(identifier);
+    }
+
+    /**
+     * Used to get a warp given its unique identifier.
+     *
+     * @param identifier The warp's unique identifier.
+     * @return The warp or null if it is not registered.
+     */
+    public @Nullable Warp getWarp(@NotNull UUID identifier) {
+        return this.warpMap.get(identifier);
+    }
+
+    /**
+     * Used to get a read only view of all the warps.
+     * The view reflects later changes to the registry
+     * and can be iterated while it is being changed.
+     *
+     * @return The view of all warps.
+     */
+    public @NotNull Collection<Warp> getAllWarps() {
+        return this.warpView;
+    }
+
+    /**
+     * Used to get the warps managed by a player.
+     * This is a read only copy that does not
+     * change if the manager's warps change.
+     *
+     * @param managerUuid The manager's uuid.
+     * @return The manager's warps.
+     */
+    public @NotNull Collection<Warp> getAllWarps(@NotNull UUID managerUuid) {
+        Map<UUID, Warp> managedMap = this.managerIndex.get(managerUuid);
+        if (managedMap == null) return Collections.emptyList();
+        return managedMap.values();
+    }
+
+    /**
+     * Used to get the names of a manager's warps
+     * that start with a prefix, ignoring case.
+     *
+     * @param managerUuid The manager's uuid.
+     * @param prefix      The prefix.
+     * @param limit       The maximum number of names.
+     * @return The list of warp names.
+     */
+    public @NotNull List<String> completeWarpNames(@NotNull UUID managerUuid, @NotNull String prefix, int limit) {
+        synchronized (this.indexLock) {
+            WarpNameTrie trie = this.warpNameIndex.get(managerUuid);
+            if (trie == null) return new ArrayList<>();
+            return trie.complete(prefix, limit);
+        }
+    }
+
+    /**
+     * Used to get the manager a warp is registered under.
+     * This can be different to the warp's manager
+     * until the warp is put again.
+     *
+     * @param identifier The warp's unique identifier.
+     * @return The manager's uuid or null if it is not registered.
+     */
+    public @Nullable UUID getIndexedManagerUuid(@NotNull UUID identifier) {
+        return this.indexedManagerMap.get(identifier);
+    }
+
+    /**
+     * Used to get the number of warps managed by a player.
+     *
+     * @param managerUuid The manager's uuid.
+     * @return The number of warps they manage.
+     */
+    public int getAmountManaged(@NotNull UUID managerUuid) {
+        Map<UUID, Warp> managedMap = this.managerIndex.get(managerUuid);
+        if (managedMap == null) return 0;
+        return managedMap.size();
+    }
+
+    /**
+     * Used to get a read only view of the uuids
+     * of the players that manage at least one warp.
+     *
+     * @return The view of the manager uuids.
+     */
+    public @NotNull Set<UUID> getManagerUuids() {
+        return Collections.unmodifiableSet(this.managerIndex.keySet());
+    }
+
+    /**
+     * Used to get a page of warps ordered by popularity.
+     *
+     * @param offset The position of the first warp.
+     * @param limit  The maximum number of warps.
+     * @return The list of warps.
+     */
+    public @NotNull List<Warp> getPopularWarps(int offset, int limit) {
+        synchronized (this.indexLock) {
+            return this.ranking.range(offset, limit);
+        }
+    }
+
+    /**
+     * Used to move a warp in the popularity ranking
+     * after its visits have changed.
+     * Warps that are not registered are ignored.
+     *
+     * @param warp The instance of the warp.
+     * @return This instance.
+     */
+    public @NotNull WarpRegistry updateRanking(@NotNull Warp warp) {
+        synchronized (this.indexLock) {
+            if (this.warpMap.get(warp.getIdentifier()) == warp) this.ranking.update(warp);
+        }
+        return this;
+    }
+
+    /**
+     * Used to record the last known health of a warp.
+     * The registered warp is replaced with a copy holding
+     * the health, so readers never see it change. Nothing is
+     * recorded if the warp was removed or moved after it was checked.
+     *
+     * @param checked The warp as it was when it was checked.
+     * @param health  The warp's health.
+     * @return True if the health was recorded.
+     */
+    public boolean setHealth(@NotNull Warp checked, @NotNull WarpHealth health) {
+        synchronized (this.getLock(checked.getIdentifier())) {
+            Warp warp = this.warpMap.get(checked.getIdentifier());
+            if (warp == null || !Objects.equals(warp.getStoredLocation(), checked.getStoredLocation())) return false;
+            if (warp.getHealth() == health) return true;
+
+            this.putWarp(warp.duplicate().setHealth(health));
+            return true;
+        }
+    }
+
+    /**
+     * Used to search for warps by their name and description.
+     *
+     * @param query The search query.
+     * @param limit The maximum number of results.
+     * @return The matching warps ordered by popularity.
+     */
+    public @NotNull List<Warp> searchWarps(@NotNull String query, int limit) {
+        synchronized (this.indexLock) {
+            return this.searchIndex.search(query, limit);
+        }
+    }
+
+    /**
+     * Used to get the warps within a distance of a location.
+     *
+     * @param location The location to search around.
+     * @param radius   The distance in blocks.
+     * @param limit    The maximum number of results.
+     * @return The warps in the same world, closest first.
+     */
+    public @NotNull List<Warp> getNearbyWarps(@NotNull Location location, double radius, int limit) {
+        synchronized (this.indexLock) {
+            return this.spatialIndex.getWithin(location, radius, limit);
+        }
+    }
+
+    /**
+     * Used to get the closest warps to a location.
+     *
+     * @param location The location to search around.
+     * @param amount   The number of warps.
+     * @return The warps in the same world, closest first.
+     */
+    public @NotNull List<Warp> getNearestWarps(@NotNull Location location, int amount) {
+        synchronized (this.indexLock) {
+            return this.spatialIndex.getNearest(location, amount);
+        }
+    }
+
+    /**
+     * Used to get the number of registered warps.
+     *
+     * @return The number of warps.
+     */
+    public int size() {
+        return this.warpMap.size();
+    }
+
+    /**
+     * Used to insert or replace a warp in the registry.
+     *
+     * @param warp The instance of the warp.
+     * @return This instance.
+     */
+    public @NotNull WarpRegistry putWarp(@NotNull Warp warp) {
+        final UUID identifier = warp.getIdentifier();
+        final UUID managerUuid = warp.getManagerUuid();
+
+        synchronized (this.getLock(identifier)) {
+            this.warpMap.put(identifier, warp);
+
+            // The warp may be the same instance that is already
+            // registered, so the manager it was indexed under
+            // is tracked separately.
+            UUID previousManagerUuid = this.indexedManagerMap.put(identifier, managerUuid);
+            if (previousManagerUuid != null && !previousManagerUuid.equals(managerUuid)) {
+                this.unindex(previousManagerUuid, identifier);
+            }
+            this.managerIndex.compute(managerUuid, (uuid, managedMap) -> {
+                Map<UUID, Warp> map = managedMap == null ? new LinkedHashMap<>() : new LinkedHashMap<>(managedMap);
+                map.put(identifier, warp);
+                return Collections.unmodifiableMap(map);
+            });
+
+            synchronized (this.indexLock) {
+
+                // Move the name if the warp was renamed or changed manager.
+                String previousName = this.indexedNameMap.put(identifier, warp.getName());
+                if (previousManagerUuid == null || !previousManagerUuid.equals(managerUuid)
+                        || !warp.getName().equals(previousName)) {
+                    if (previousManagerUuid != null && previousName != null) this.unindexName(previousManagerUuid, previousName);
+                    this.warpNameIndex.computeIfAbsent(managerUuid, uuid -> new WarpNameTrie()).add(warp.getName());
+                }
+
+                this.ranking.update(warp);
+                this.searchIndex.update(warp);
+                this.spatialIndex.update(warp);
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Used to remove a warp from the registry.
+     *
+     * @param identifier The warp's unique identifier.
+     * @return The removed warp or null if it was not registered.
+     */
+    public @Nullable Warp removeWarp(@NotNull UUID identifier) {
+        synchronized (this.getLock(identifier)) {
+            UUID managerUuid = this.indexedManagerMap.remove(identifier);
+            if (managerUuid != null) this.unindex(managerUuid, identifier);
+
+            synchronized (this.indexLock) {
+                String name = this.indexedNameMap.remove(identifier);
+                if (managerUuid != null && name != null) this.unindexName(managerUuid, name);
+                this.ranking.remove(identifier);
+                this.searchIndex.remove(identifier);
+                this.spatialIndex.remove(identifier);
+            }
+            return this.warpMap.remove(identifier);
+        }
+    }
+
+    private void unindexName(@NotNull UUID managerUuid, @NotNull String name) {
+        WarpNameTrie trie = this.warpNameIndex.get(managerUuid);
+        if (trie == null) return;
+
+        trie.remove(name);
+        if (trie.isEmpty()) this.warpNameIndex.remove(managerUuid);
+    }
+
+    private void unindex(@NotNull UUID managerUuid, @NotNull UUID identifier) {
+        this.managerIndex.computeIfPresent(managerUuid, (uuid, managedMap) -> {
+            if (!managedMap.containsKey(identifier)) return managedMap;
+
+            Map<UUID, Warp> map = new LinkedHashMap<>(managedMap);
+            map.remove(identifier);
+            return map.isEmpty() ? null : Collections.unmodifiableMap(map);
+        });
+    }
+}
@@ -0,0 +1,199 @@
+/*
+ * CozyWarps - Used to create player warps.
+ * Copyright (C) 2024 CozyPlugins
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.github.cozyplugins.cozywarps;
+
+import com.github.cozyplugins.cozywarps.metrics.WarpMetrics;
+import com.github.cozyplugins.cozywarps.metrics.WarpTimer;
+import org.bukkit.Chunk;
+import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.bukkit.block.Block;
+import org.bukkit.plugin.Plugin;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * Represents the warp safety check.
+ * The blocks are checked on the main thread, where their
+ * collision shapes can be read. The check never loads a chunk
+ * on the main thread. On Paper an unloaded chunk is loaded in
+ * the background first, otherwise the check has no result
+ * until the chunk is loaded by something else.
+ * <p>
+ * A location is safe when the player has something to stand on,
+ * the blocks a player stands in leave room for them and none
+ * of them are lava or another block that hurts players.
+ * Players stand on top of partial blocks, so a warp in a slab,
+ * path, farmland, snow layer or carpet can be safe.
+ */
+public class WarpSafetyChecker {
+
+    private static final @NotNull Set<Material> HARMFUL_MATERIALS = EnumSet.of(
+            Material.LAVA, Material.FIRE, Material.SOUL_FIRE, Material.MAGMA_BLOCK,
+            Material.CAMPFIRE, Material.SOUL_CAMPFIRE, Material.CACTUS,
+            Material.SWEET_BERRY_BUSH, Material.POWDER_SNOW, Material.WITHER_ROSE
+    );
+
+    /**
+     * The highest a player can be raised by the block they stand
+     * in before their head reaches into the block above.
+     */
+    private static final double MAX_HEADROOM_RAISE = 0.2;
+
+    private final @NotNull Plugin plugin;
+    private final @NotNull WarpMetrics metrics;
+    private final @NotNull Executor mainExecutor;
+
+    /**
+     * Used to create a warp safety checker.
+     *
+     * @param plugin  The instance of the plugin.
+     * @param metrics The metrics to time the checks with.
+     */
+    public WarpSafetyChecker(@NotNull Plugin plugin, @NotNull WarpMetrics metrics) {
+        this.plugin = plugin;
+        this.metrics = metrics;
+        this.mainExecutor = WarpChunkLoader.getMainExecutor(plugin);
+    }
+
+    /**
+     * Used to check if a location is a safe place to teleport.
+     * This should be called on the main thread and the
+     * future is completed on the main thread.
+     * <p>
+     * The result is null when the location's chunk is not
+     * loaded and the server cannot load it in the background.
+     *
+     * @param location The location to check.
+     * @return The future result, true if the location is safe.
+     */
+    public @NotNull CompletableFuture<Boolean> check(@Nullable Location location) {
+        if (location == null || location.getWorld() == null) return CompletableFuture.completedFuture(false);
+
+        final World world = location.getWorld();
+        final int x = location.getBlockX();
+        final int y = location.getBlockY();
+        final int z = location.getBlockZ();
+
+        // Check if the player could not stand there.
+        if (y - 1 < world.getMinHeight() || y + 1 >= world.getMaxHeight()) {
+            return CompletableFuture.completedFuture(false);
+        }
+
+        // Check if the chunk cannot be loaded without
+        // blocking the main thread.
+        final CompletableFuture<Chunk> chunkFuture = this.getChunk(world, x >> 4, z >> 4);
+        if (chunkFuture == null) return CompletableFuture.completedFuture(null);
+
+        // The check is timed from start to finish,
+        // including waiting for the chunk.
+        final long startNanos = System.nanoTime();
+
+        // The result is handled on the main thread, even when
+        // the chunk could not be loaded.
+        return chunkFuture.handleAsync((chunk, throwable) -> {
+            if (throwable != null) {
+                this.plugin.getLogger().warning("Unable to check if a warp is safe: " + throwable.getMessage());
+                return false;
+            }
+
+            WarpTimer.Sample sample = this.metrics.start(WarpMetrics.SAFETY_EVALUATE);
+            boolean safe = WarpSafetyChecker.isSafe(world, x, y, z);
+            sample.stop();
+
+            this.metrics.getTimer(WarpMetrics.SAFETY_CHECK).record(System.nanoTime() - startNanos, 0);
+            return safe;
+        }, this.mainExecutor);
+    }
+
+    /**
+     * Used to check the blocks at a location.
+     * This should be called on the main thread
+     * while the location's chunk is loaded.
+     *
+     * @param world The world the location is in.
+     * @param x     The x coordinate.
+     * @param y     The y coordinate of the player's feet.
+     * @param z     The z coordinate.
+     * @return True if the location is safe.
+     */
+    public static boolean isSafe(@NotNull World world, int x, int y, int z) {
+        Block floor = world.getBlockAt(x, y - 1, z);
+        Block feet = world.getBlockAt(x, y, z);
+        Block head = world.getBlockAt(x, y + 1, z);
+
+        // Check for blocks that hurt players.
+        if (HARMFUL_MATERIALS.contains(floor.getType())
+                || HARMFUL_MATERIALS.contains(feet.getType())
+                || HARMFUL_MATERIALS.contains(head.getType())) return false;
+
+        // Check the blocks the player will stand in.
+        double raise = WarpSafetyChecker.getCollisionHeight(feet);
+        if (raise >= 1 || !head.isPassable()) return false;
+
+        // Check if the player stands on top of a partial block,
+        // and if their head then reaches into the block above.
+        if (raise > MAX_HEADROOM_RAISE) {
+            if (y + 2 >= world.getMaxHeight()) return false;
+            return world.getBlockAt(x, y + 2, z).isPassable();
+        }
+        if (raise > 0) return true;
+
+        // Check the block the player will stand on.
+        return !floor.isPassable();
+    }
+
+    /**
+     * Used to get how far above its bottom a block
+     * stops players, or 0 if players can pass through it.
+     *
+     * @param block The instance of the block.
+     * @return The height of the block's collision shape.
+     */
+    private static double getCollisionHeight(@NotNull Block block) {
+        if (block.isPassable()) return 0;
+        return block.getBoundingBox().getMaxY() - block.getY();
+    }
+
+    /**
+     * Used to get a chunk without loading it on the main thread.
+     * <p>
+     * Spigot can only load chunks on the main thread, which can
+     * take a few milliseconds for a chunk that has to be read from
+     * disk or generated, so without Paper's asynchronous chunk
+     * loading an unloaded chunk is not loaded at all.
+     *
+     * @return The future chunk, or null if it is not loaded
+     * and cannot be loaded in the background.
+     */
+    private @Nullable CompletableFuture<Chunk> getChunk(@NotNull World world, int chunkX, int chunkZ) {
+        if (world.isChunkLoaded(chunkX, chunkZ)) {
+            return CompletableFuture.completedFuture(world.getChunkAt(chunkX, chunkZ));
+        }
+
+        // Paper can load the chunk in the background.
+        return WarpChunkLoader.getChunkAtAsync(this.plugin, world, chunkX, chunkZ);
+    }
+}
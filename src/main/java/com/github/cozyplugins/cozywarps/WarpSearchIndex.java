@@ -0,0 +1,240 @@
+/*
+ * CozyWarps - Used to create player warps.
+ * Copyright (C) 2024 CozyPlugins
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.github.cozyplugins.cozywarps;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.UUID;
+
+/**
+ * Represents the search index for warp names and descriptions.
+ * The text is split into lower case words and each word
+ * points to the warps that contain it. The words are sorted,
+ * so the warps for every word starting with a prefix are
+ * next to each other.
+ */
+public class WarpSearchIndex {
+
+    /**
+     * The shortest query word that is searched for.
+     * A single letter starts a word in almost every warp.
+     */
+    public static final int MIN_PREFIX_LENGTH = 2;
+
+    private final @NotNull TreeMap<String, Set<UUID>> tokenMap;
+    private final @NotNull Map<UUID, Set<String>> indexedTokenMap;
+    private final @NotNull Map<UUID, Warp> warpMap;
+
+    /**
+     * Used to create an empty search index.
+     */
+    public WarpSearchIndex() {
+        this.tokenMap = new TreeMap<>();
+        this.indexedTokenMap = new HashMap<>();
+        this.warpMap = new HashMap<>();
+    }
+
+    /**
+     * Used to add a warp or update its words.
+     * Only the words that changed are moved.
+     *
+     * @param warp The instance of the warp.
+     * @return This instance.
+     */
+    public @NotNull WarpSearchIndex update(@NotNull Warp warp) {
+        final UUID identifier = warp.getIdentifier();
+        this.warpMap.put(identifier, warp);
+
+        Set<String> tokens = WarpSearchIndex.tokenize(warp.getName());
+        tokens.addAll(WarpSearchIndex.tokenize(warp.getDescription()));
+
+        Set<String> previousTokens = this.indexedTokenMap.put(identifier, tokens);
+        if (previousTokens == null) previousTokens = Collections.emptySet();
+        if (previousTokens.equals(tokens)) return this;
+
+        for (String token : previousTokens) {
+            if (!tokens.contains(token)) this.unindex(token, identifier);
+        }
+        for (String token : tokens) {
+            if (!previousTokens.contains(token)) this.tokenMap.computeIfAbsent(token, key -> new HashSet<>()).add(identifier);
+        }
+        return this;
+    }
+
+    /**
+     * Used to remove a warp from the index.
+     *
+     * @param identifier The warp's unique identifier.
+     * @return This instance.
+     */
+    public @NotNull WarpSearchIndex remove(@NotNull UUID identifier) {
+        this.warpMap.remove(identifier);
+
+        Set<String> tokens = this.indexedTokenMap.remove(identifier);
+        if (tokens == null) return this;
+
+        for (String token : tokens) this.unindex(token, identifier);
+        return this;
+    }
+
+    /**
+     * Used to search for warps.
+     * Every word in the query has to start a word in the
+     * warp's name or description. Query words shorter than
+     * {@link #MIN_PREFIX_LENGTH} are ignored. The results are
+     * ordered by the number of visits.
+     *
+     * @param query The search query.
+     * @param limit The maximum number of results.
+     * @return The list of matching warps.
+     */
+    public @NotNull List<Warp> search(@NotNull String query, int limit) {
+        Set<String> queryTokens = WarpSearchIndex.tokenize(query);
+        queryTokens.removeIf(token -> token.length() < MIN_PREFIX_LENGTH);
+        if (queryTokens.isEmpty() || limit <= 0) return new ArrayList<>();
+
+        // Start with the least common word, so the
+        // set being narrowed down is as small as possible.
+        List<Set<UUID>> matchList = new ArrayList<>();
+        for (String token : queryTokens) {
+            Set<UUID> matches = this.getPrefixMatches(token);
+            if (matches.isEmpty()) return new ArrayList<>();
+            matchList.add(matches);
+        }
+        matchList.sort((matches, other) -> Integer.compare(matches.size(), other.size()));
+
+        // Only keep the most visited matches, the least
+        // visited of them is at the head of the queue.
+        PriorityQueue<Match> queue = new PriorityQueue<>(limit + 1);
+        for (UUID identifier : matchList.get(0)) {
+            if (!WarpSearchIndex.containsAll(matchList, identifier)) continue;
+
+            Warp warp = this.warpMap.get(identifier);
+            Match match = new Match(warp, warp.getVisits());
+            if (queue.size() < limit) {
+                queue.add(match);
+            } else if (match.compareTo(queue.peek()) > 0) {
+                queue.poll();
+                queue.add(match);
+            }
+        }
+
+        Warp[] results = new Warp[queue.size()];
+        for (int index = results.length - 1; index >= 0; index--) results[index] = queue.poll().warp();
+        return new ArrayList<>(List.of(results));
+    }
+
+    /**
+     * Used to check if a query has a word
+     * long enough to be searched for.
+     *
+     * @param query The search query.
+     * @return True if the query can be searched for.
+     */
+    public static boolean isSearchable(@NotNull String query) {
+        for (String token : WarpSearchIndex.tokenize(query)) {
+            if (token.length() >= MIN_PREFIX_LENGTH) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Used to get the warps with a word that
+     * starts with a prefix.
+     */
+    private @NotNull Set<UUID> getPrefixMatches(@NotNull String prefix) {
+        SortedMap<String, Set<UUID>> subMap = this.tokenMap.subMap(prefix, prefix + Character.MAX_VALUE);
+        if (subMap.isEmpty()) return Collections.emptySet();
+        if (subMap.size() == 1) return subMap.values().iterator().next();
+
+        Set<UUID> matches = new HashSet<>();
+        for (Set<UUID> identifiers : subMap.values()) matches.addAll(identifiers);
+        return matches;
+    }
+
+    private void unindex(@NotNull String token, @NotNull UUID identifier) {
+        Set<UUID> identifiers = this.tokenMap.get(token);
+        if (identifiers == null) return;
+
+        identifiers.remove(identifier);
+        if (identifiers.isEmpty()) this.tokenMap.remove(token);
+    }
+
+    private static boolean containsAll(@NotNull Collection<Set<UUID>> matchList, @NotNull UUID identifier) {
+        for (Set<UUID> matches : matchList) {
+            if (!matches.contains(identifier)) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Used to split text into lower case words.
+     * Colour codes are removed first.
+     *
+     * @param text The text to split.
+     * @return The set of words.
+     */
+    public static @NotNull Set<String> tokenize(@Nullable String text) {
+        Set<String> tokens = new HashSet<>();
+        if (text == null) return tokens;
+
+        String lowerCase = text.replaceAll("[&§][0-9a-fk-orA-FK-OR]", "").toLowerCase(Locale.ROOT);
+        StringBuilder builder = new StringBuilder();
+        for (int index = 0; index < lowerCase.length(); index++) {
+            char character = lowerCase.charAt(index);
+            if (Character.isLetterOrDigit(character)) {
+                builder.append(character);
+                continue;
+            }
+            if (builder.length() > 0) tokens.add(builder.toString());
+            builder.setLength(0);
+        }
+        if (builder.length() > 0) tokens.add(builder.toString());
+        return tokens;
+    }
+
+    /**
+     * Represents a matching warp with its visits
+     * read once, so they are not looked up again
+     * for every comparison.
+     *
+     * @param warp   The instance of the warp.
+     * @param visits The number of visits.
+     */
+    private record Match(@NotNull Warp warp, int visits) implements Comparable<Match> {
+
+        @Override
+        public int compareTo(@NotNull Match match) {
+            return Integer.compare(this.visits, match.visits);
+        }
+    }
+}
@@ -0,0 +1,367 @@
+/*
+ * CozyWarps - Used to create player warps.
+ * Copyright (C) 2024 CozyPlugins
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.github.cozyplugins.cozywarps;
+
+import org.bukkit.Location;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.UUID;
+
+/**
+ * Represents the warps placed on a grid for each world,
+ * used to find the warps near a location without
+ * going through every warp.
+ * <p>
+ * Each cell covers a column of 64 by 64 blocks.
+ * Queries only visit the cells that can contain a match,
+ * or every filled cell when that would be fewer.
+ */
+public class WarpSpatialIndex {
+
+    private static final int CELL_SHIFT = 6;
+    private static final int CELL_SIZE = 1 << CELL_SHIFT;
+
+    private final @NotNull Map<UUID, Entry> entryMap;
+    private final @NotNull Map<UUID, Grid> gridMap;
+
+    /**
+     * Represents a warp's position in the index.
+     */
+    private static class Entry {
+
+        private final @NotNull UUID worldUuid;
+        private final long cellKey;
+        private final double x;
+        private final double y;
+        private final double z;
+        private @NotNull Warp warp;
+        private double distance;
+
+        private Entry(@NotNull Warp warp, @NotNull UUID worldUuid, double x, double y, double z) {
+            this.warp = warp;
+            this.worldUuid = worldUuid;
+            this.x = x;
+            this.y = y;
+            this.z = z;
+            this.cellKey = WarpSpatialIndex.getCellKey(WarpSpatialIndex.getCell(x), WarpSpatialIndex.getCell(z));
+        }
+
+        private double getDistanceSquared(double x, double y, double z) {
+            double dx = this.x - x;
+            double dy = this.y - y;
+            double dz = this.z - z;
+            return dx * dx + dy * dy + dz * dz;
+        }
+    }
+
+    /**
+     * Represents the filled cells of a world.
+     */
+    private static class Grid {
+
+        private final @NotNull Map<Long, List<Entry>> cellMap = new HashMap<>();
+        private int minCellX = Integer.MAX_VALUE;
+        private int maxCellX = Integer.MIN_VALUE;
+        private int minCellZ = Integer.MAX_VALUE;
+        private int maxCellZ = Integer.MIN_VALUE;
+
+        private void add(@NotNull Entry entry) {
+            this.cellMap.computeIfAbsent(entry.cellKey, key -> new ArrayList<>(4)).add(entry);
+
+            // The bounds only grow, which keeps them correct.
+            int cellX = WarpSpatialIndex.getCell(entry.x);
+            int cellZ = WarpSpatialIndex.getCell(entry.z);
+            this.minCellX = Math.min(this.minCellX, cellX);
+            this.maxCellX = Math.max(this.maxCellX, cellX);
+            this.minCellZ = Math.min(this.minCellZ, cellZ);
+            this.maxCellZ = Math.max(this.maxCellZ, cellZ);
+        }
+
+        private void remove(@NotNull Entry entry) {
+            List<Entry> cell = this.cellMap.get(entry.cellKey);
+            if (cell == null) return;
+
+            cell.remove(entry);
+            if (cell.isEmpty()) this.cellMap.remove(entry.cellKey);
+        }
+    }
+
+    /**
+     * Used to create an empty spatial index.
+     */
+    public WarpSpatialIndex() {
+        this.entryMap = new HashMap<>();
+        this.gridMap = new HashMap<>();
+    }
+
+    /**
+     * Used to get the number of warps in the index.
+     *
+     * @return The number of warps.
+     */
+    public int size() {
+        return this.entryMap.size();
+    }
+
+    /**
+     * Used to add a warp or move it to its current location.
+     * Warps without a location or world are removed.
+     *
+     * @param warp The instance of the warp.
+     * @return This instance.
+     */
+    public @NotNull WarpSpatialIndex update(@NotNull Warp warp) {
+        Location location = warp.getLocation();
+        if (location == null || location.getWorld() == null) {
+            this.remove(warp.getIdentifier());
+            return this;
+        }
+
+        UUID worldUuid = location.getWorld().getUID();
+        Entry entry = this.entryMap.get(warp.getIdentifier());
+
+        // Check if the warp has not moved.
+        if (entry != null && entry.worldUuid.equals(worldUuid)
+                && entry.x == location.getX() && entry.y == location.getY() && entry.z == location.getZ()) {
+            entry.warp = warp;
+            return this;
+        }
+
+        this.remove(warp.getIdentifier());
+        entry = new Entry(warp, worldUuid, location.getX(), location.getY(), location.getZ());
+        this.entryMap.put(warp.getIdentifier(), entry);
+        this.gridMap.computeIfAbsent(worldUuid, uuid -> new Grid()).add(entry);
+        return this;
+    }
+
+    /**
+     * Used to remove a warp from the index.
+     *
+     * @param identifier The warp's unique identifier.
+     * @return True if the warp was in the index.
+     */
+    public boolean remove(@NotNull UUID identifier) {
+        Entry entry = this.entryMap.remove(identifier);
+        if (entry == null) return false;
+
+        Grid grid = this.gridMap.get(entry.worldUuid);
+        if (grid == null) return true;
+
+        grid.remove(entry);
+        if (grid.cellMap.isEmpty()) this.gridMap.remove(entry.worldUuid);
+        return true;
+    }
+
+    /**
+     * Used to get the warps within a distance of a location.
+     *
+     * @param location The location to search around.
+     * @param radius   The maximum distance in blocks.
+     * @param limit    The maximum number of warps.
+     * @return The warps, closest first.
+     */
+    public @NotNull List<Warp> getWithin(@NotNull Location location, double radius, int limit) {
+        List<Warp> list = new ArrayList<>();
+        if (location.getWorld() == null || radius < 0 || limit <= 0) return list;
+
+        Grid grid = this.gridMap.get(location.getWorld().getUID());
+        if (grid == null) return list;
+
+        final double x = location.getX();
+        final double y = location.getY();
+        final double z = location.getZ();
+        final double radiusSquared = radius * radius;
+
+        // Only look at the cells overlapping the square around
+        // the location, clamped to the filled part of the world.
+        int fromX = Math.max(grid.minCellX, WarpSpatialIndex.getCell(x - radius));
+        int toX = Math.min(grid.maxCellX, WarpSpatialIndex.getCell(x + radius));
+        int fromZ = Math.max(grid.minCellZ, WarpSpatialIndex.getCell(z - radius));
+        int toZ = Math.min(grid.maxCellZ, WarpSpatialIndex.getCell(z + radius));
+
+        List<Entry> matches = new ArrayList<>();
+        if (fromX > toX || fromZ > toZ) return list;
+
+        long cells = (long) (toX - fromX + 1) * (toZ - fromZ + 1);
+        if (cells > grid.cellMap.size()) {
+            for (List<Entry> cell : grid.cellMap.values()) {
+                WarpSpatialIndex.collectWithin(cell, x, y, z, radiusSquared, matches);
+            }
+        } else {
+            for (int cellX = fromX; cellX <= toX; cellX++) {
+                for (int cellZ = fromZ; cellZ <= toZ; cellZ++) {
+                    List<Entry> cell = grid.cellMap.get(WarpSpatialIndex.getCellKey(cellX, cellZ));
+                    if (cell == null) continue;
+                    WarpSpatialIndex.collectWithin(cell, x, y, z, radiusSquared, matches);
+                }
+            }
+        }
+
+        matches.sort(Comparator.comparingDouble(entry -> entry.distance));
+        for (int index = 0; index < matches.size() && index < limit; index++) {
+            list.add(matches.get(index).warp);
+        }
+        return list;
+    }
+
+    /**
+     * Used to get the closest warps to a location
+     * in the same world.
+     *
+     * @param location The location to search around.
+     * @param amount   The number of warps.
+     * @return The warps, closest first.
+     */
+    public @NotNull List<Warp> getNearest(@NotNull Location location, int amount) {
+        List<Warp> list = new ArrayList<>();
+        if (location.getWorld() == null || amount <= 0) return list;
+
+        Grid grid = this.gridMap.get(location.getWorld().getUID());
+        if (grid == null) return list;
+
+        final double x = location.getX();
+        final double y = location.getY();
+        final double z = location.getZ();
+        final int centerX = WarpSpatialIndex.getCell(x);
+        final int centerZ = WarpSpatialIndex.getCell(z);
+
+        // Keep the closest warps found so far, furthest on top.
+        PriorityQueue<Entry> closest = new PriorityQueue<>(
+                amount + 1, Comparator.comparingDouble((Entry entry) -> entry.distance).reversed()
+        );
+
+        // Only the rings that overlap the filled part of the world can contain a warp.
+        int firstRing = Math.max(
+                Math.max(grid.minCellX - centerX, centerX - grid.maxCellX),
+                Math.max(grid.minCellZ - centerZ, centerZ - grid.maxCellZ)
+        );
+        int lastRing = Math.max(
+                Math.max(Math.abs(centerX - grid.minCellX), Math.abs(grid.maxCellX - centerX)),
+                Math.max(Math.abs(centerZ - grid.minCellZ), Math.abs(grid.maxCellZ - centerZ))
+        );
+
+        long visitedCells = 0;
+        for (int ring = Math.max(0, firstRing); ring <= lastRing; ring++) {
+
+            // Every cell outside the previous rings is at least
+            // this far away, so stop once the closest warps are nearer.
+            double gap = (double) (ring - 1) * CELL_SIZE;
+            if (closest.size() == amount && ring > 0 && closest.peek().distance <= gap * gap) break;
+
+            // The part of the ring inside the filled part of the world.
+            int fromX = Math.max(grid.minCellX, centerX - ring);
+            int toX = Math.min(grid.maxCellX, centerX + ring);
+            int fromZ = Math.max(grid.minCellZ, centerZ - ring + 1);
+            int toZ = Math.min(grid.maxCellZ, centerZ + ring - 1);
+            boolean top = centerZ - ring >= grid.minCellZ;
+            boolean bottom = ring > 0 && centerZ + ring <= grid.maxCellZ;
+            boolean left = centerX - ring >= grid.minCellX;
+            boolean right = ring > 0 && centerX + ring <= grid.maxCellX;
+
+            // Check if going round the ring would visit
+            // more cells than are filled.
+            long ringCells = (long) Math.max(0, toX - fromX + 1) * ((top ? 1 : 0) + (bottom ? 1 : 0))
+                    + (long) Math.max(0, toZ - fromZ + 1) * ((left ? 1 : 0) + (right ? 1 : 0));
+            if (visitedCells + ringCells > grid.cellMap.size()) {
+                for (List<Entry> cell : grid.cellMap.values()) {
+                    int cellX = WarpSpatialIndex.getCell(cell.get(0).x);
+                    int cellZ = WarpSpatialIndex.getCell(cell.get(0).z);
+                    if (Math.max(Math.abs(cellX - centerX), Math.abs(cellZ - centerZ)) < ring) continue;
+                    WarpSpatialIndex.collectNearest(cell, x, y, z, amount, closest);
+                }
+                break;
+            }
+            visitedCells += ringCells;
+
+            for (int cellX = fromX; cellX <= toX; cellX++) {
+                if (top) WarpSpatialIndex.collectNearest(grid, cellX, centerZ - ring, x, y, z, amount, closest);
+                if (bottom) WarpSpatialIndex.collectNearest(grid, cellX, centerZ + ring, x, y, z, amount, closest);
+            }
+            for (int cellZ = fromZ; cellZ <= toZ; cellZ++) {
+                if (left) WarpSpatialIndex.collectNearest(grid, centerX - ring, cellZ, x, y, z, amount, closest);
+                if (right) WarpSpatialIndex.collectNearest(grid, centerX + ring, cellZ, x, y, z, amount, closest);
+            }
+        }
+
+        List<Entry> entries = new ArrayList<>(closest);
+        entries.sort(Comparator.comparingDouble(entry -> entry.distance));
+        for (Entry entry : entries) list.add(entry.warp);
+        return list;
+    }
+
+    /**
+     * Used to remove every warp from the index.
+     */
+    public void clear() {
+        this.entryMap.clear();
+        this.gridMap.clear();
+    }
+
+    private static void collectWithin(@NotNull List<Entry> cell, double x, double y, double z,
+                                      double radiusSquared, @NotNull List<Entry> matches) {
+        for (Entry entry : cell) {
+            double distance = entry.getDistanceSquared(x, y, z);
+            if (distance > radiusSquared) continue;
+            entry.distance = distance;
+            matches.add(entry);
+        }
+    }
+
+    private static void collectNearest(@NotNull Grid grid, int cellX, int cellZ, double x, double y, double z,
+                                       int amount, @NotNull PriorityQueue<Entry> closest) {
+        List<Entry> cell = grid.cellMap.get(WarpSpatialIndex.getCellKey(cellX, cellZ));
+        if (cell == null) return;
+        WarpSpatialIndex.collectNearest(cell, x, y, z, amount, closest);
+    }
+
+    private static void collectNearest(@NotNull List<Entry> cell, double x, double y, double z,
+                                       int amount, @NotNull PriorityQueue<Entry> closest) {
+        for (Entry entry : cell) {
+            double distance = entry.getDistanceSquared(x, y, z);
+            if (closest.size() == amount && distance >= closest.peek().distance) continue;
+
+            entry.distance = distance;
+            closest.add(entry);
+            if (closest.size() > amount) closest.poll();
+        }
+    }
+
+    private static int getCell(double coordinate) {
+        return (int) Math.floor(coordinate) >> CELL_SHIFT;
+    }
+
+    /**
+     * Used to get the key of a cell. The packed coordinates are
+     * multiplied by an odd number, which keeps every key unique
+     * while spreading the bits that the long hash code uses.
+     *
+     * @param cellX The cell's x coordinate.
+     * @param cellZ The cell's z coordinate.
+     * @return The key of the cell.
+     */
+    private static long getCellKey(int cellX, int cellZ) {
+        return (((long) cellX << 32) | (cellZ & 0xFFFFFFFFL)) * 0x9E3779B97F4A7C15L;
+    }
+}
@@ -45,7 +45,37 @@ public class WarpVisit {
         return this.warpUuid.equals(warpUuid);
     }
 
+    /**
+     * Used to get the uuid of the warp that was visited.
+     *
+     * @return The warp's uuid.
+     */
+    public @NotNull UUID getWarpUuid() {
+        return this.warpUuid;
+    }
+
+    /**
+     * Used to get the uuid of the player that visited.
+     *
+     * @return The player's uuid.
+     */
+    public @NotNull UUID getPlayerUuid() {
+        return this.playerUuid;
+    }
+
     public boolean isPlayerUuid(@NotNull UUID playerUuid) {
         return this.playerUuid.equals(playerUuid);
     }
+
+    @Override
+    public boolean equals(Object object) {
+        if (this == object) return true;
+        if (!(object instanceof WarpVisit visit)) return false;
+        return this.warpUuid.equals(visit.warpUuid) && this.playerUuid.equals(visit.playerUuid);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * this.warpUuid.hashCode() + this.playerUuid.hashCode();
+    }
 }
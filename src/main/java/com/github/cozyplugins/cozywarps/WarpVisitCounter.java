@@ -0,0 +1,103 @@
+/*
+ * CozyWarps - Used to create player warps.
+ * Copyright (C) 2024 CozyPlugins
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.github.cozyplugins.cozywarps;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ObjLongConsumer;
+
+/**
+ * Represents the visits recorded for each warp
+ * that have not been saved yet.
+ * Visits can be counted from any thread and are
+ * handed to storage in batches, separately from
+ * the rest of the warp.
+ */
+public class WarpVisitCounter {
+
+    private final @NotNull Map<UUID, LongAdder> pendingMap;
+
+    /**
+     * Used to create an empty warp visit counter.
+     */
+    public WarpVisitCounter() {
+        this.pendingMap = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Used to count a visit to a warp.
+     *
+     * @param identifier The warp's unique identifier.
+     * @return This instance.
+     */
+    public @NotNull WarpVisitCounter increment(@NotNull UUID identifier) {
+        this.pendingMap.computeIfAbsent(identifier, uuid -> new LongAdder()).increment();
+        return this;
+    }
+
+    /**
+     * Used to get the number of visits to a warp
+     * that have not been flushed yet.
+     *
+     * @param identifier The warp's unique identifier.
+     * @return The number of pending visits.
+     */
+    public long getPending(@NotNull UUID identifier) {
+        LongAdder adder = this.pendingMap.get(identifier);
+        if (adder == null) return 0;
+        return adder.sum();
+    }
+
+    /**
+     * Used to take the pending visits of every warp.
+     * Visits counted while flushing are kept
+     * for the next flush.
+     *
+     * @param consumer Given each warp identifier with
+     *                 the number of visits taken.
+     * @return This instance.
+     */
+    public @NotNull WarpVisitCounter flush(@NotNull ObjLongConsumer<UUID> consumer) {
+        for (Map.Entry<UUID, LongAdder> entry : this.pendingMap.entrySet()) {
+            long delta = entry.getValue().sum();
+            if (delta == 0) continue;
+
+            // Take away only what was read, so a concurrent
+            // increment is not lost.
+            entry.getValue().add(-delta);
+            consumer.accept(entry.getKey(), delta);
+        }
+        return this;
+    }
+
+    /**
+     * Used to forget the pending visits of a warp.
+     *
+     * @param identifier The warp's unique identifier.
+     * @return This instance.
+     */
+    public @NotNull WarpVisitCounter remove(@NotNull UUID identifier) {
+        this.pendingMap.remove(identifier);
+        return this;
+    }
+}
@@ -0,0 +1,372 @@
+/*
+ * CozyWarps - Used to create player warps.
+ * Copyright (C) 2024 CozyPlugins
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.github.cozyplugins.cozywarps;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.UUID;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Represents a set of recent warp visits.
+ * Each visit is stored as the two uuids packed into
+ * four longs in an open addressing table, so checking
+ * a visit does not create any objects.
+ * <p>
+ * A visit expires exactly one window after it was recorded.
+ * Visits are also grouped into generations by the time they
+ * were recorded, so expired visits can be removed a whole
+ * generation at a time without scanning the table.
+ * <p>
+ * The set can be used from any thread. Changes hold the
+ * write lock, while checking a visit reads the table without
+ * locking and only takes the read lock if a change happened
+ * at the same time.
+ */
+public class WarpVisitSet {
+
+    private static final int DEFAULT_CAPACITY = 1024;
+    private static final int GENERATIONS_PER_WINDOW = 12;
+
+    private final long windowMillis;
+    private final long generationMillis;
+    private final @NotNull ArrayDeque<Generation> generationQueue;
+    private final @NotNull StampedLock lock;
+
+    private long[] keys;
+    private long[] times;
+    private boolean[] used;
+    private int mask;
+    private int size;
+
+    /**
+     * Represents the visits recorded during
+     * one slice of the window.
+     */
+    private static class Generation {
+
+        private final long startMillis;
+        private long[] keys = new long[64];
+        private int count;
+
+        private Generation(long startMillis) {
+            this.startMillis = startMillis;
+        }
+
+        private void add(long warpMost, long warpLeast, long playerMost, long playerLeast) {
+            if (this.count + 4 > this.keys.length) this.keys = Arrays.copyOf(this.keys, this.keys.length * 2);
+            this.keys[this.count++] = warpMost;
+            this.keys[this.count++] = warpLeast;
+            this.keys[this.count++] = playerMost;
+            this.keys[this.count++] = playerLeast;
+        }
+    }
+
+    /**
+     * Used to create an empty warp visit set.
+     *
+     * @param windowMillis How long a visit is remembered for in milliseconds.
+     */
+    public WarpVisitSet(long windowMillis) {
+        this.windowMillis = Math.max(1, windowMillis);
+        this.generationMillis = Math.max(1, this.windowMillis / GENERATIONS_PER_WINDOW);
+        this.generationQueue = new ArrayDeque<>();
+        this.lock = new StampedLock();
+        this.allocate(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Used to get how long a visit is remembered for.
+     *
+     * @return The window in milliseconds.
+     */
+    public long getWindowMillis() {
+        return this.windowMillis;
+    }
+
+    /**
+     * Used to get how often expired visits
+     * can be removed.
+     *
+     * @return The length of a generation in milliseconds.
+     */
+    public long getGenerationMillis() {
+        return this.generationMillis;
+    }
+
+    /**
+     * Used to get the number of visits in the set.
+     * This can include expired visits that have
+     * not been removed yet.
+     *
+     * @return The number of visits.
+     */
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * Used to check if a player has visited a warp
+     * within the window.
+     *
+     * @param warpUuid   The warp's uuid.
+     * @param playerUuid The player's uuid.
+     * @param nowMillis  The current time in milliseconds.
+     * @return True if the visit is in the set and has not expired.
+     */
+    public boolean contains(@NotNull UUID warpUuid, @NotNull UUID playerUuid, long nowMillis) {
+        final long warpMost = warpUuid.getMostSignificantBits();
+        final long warpLeast = warpUuid.getLeastSignificantBits();
+        final long playerMost = playerUuid.getMostSignificantBits();
+        final long playerLeast = playerUuid.getLeastSignificantBits();
+
+        // Read the table without locking, the arrays are checked
+        // to be from the same table in case it was being resized.
+        long stamp = this.lock.tryOptimisticRead();
+        if (stamp != 0) {
+            long[] keys = this.keys;
+            long[] times = this.times;
+            boolean[] used = this.used;
+
+            if (keys.length == used.length * 4 && times.length == used.length) {
+                int slot = WarpVisitSet.find(keys, used, warpMost, warpLeast, playerMost, playerLeast);
+                boolean visited = slot >= 0 && nowMillis - times[slot] < this.windowMillis;
+                if (this.lock.validate(stamp)) return visited;
+            }
+        }
+
+        // Check if a change happened while reading.
+        stamp = this.lock.readLock();
+        try {
+            int slot = this.find(warpMost, warpLeast, playerMost, playerLeast);
+            return slot >= 0 && !this.isExpired(slot, nowMillis);
+        } finally {
+            this.lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Used to record a visit.
+     *
+     * @param warpUuid   The warp's uuid.
+     * @param playerUuid The player's uuid.
+     * @param nowMillis  The current time in milliseconds.
+     * @return True if there was no visit within the window.
+     */
+    public boolean add(@NotNull UUID warpUuid, @NotNull UUID playerUuid, long nowMillis) {
+        long stamp = this.lock.writeLock();
+        try {
+            return this.addLocked(warpUuid, playerUuid, nowMillis);
+        } finally {
+            this.lock.unlockWrite(stamp);
+        }
+    }
+
+    private boolean addLocked(@NotNull UUID warpUuid, @NotNull UUID playerUuid, long nowMillis) {
+        long warpMost = warpUuid.getMostSignificantBits();
+        long warpLeast = warpUuid.getLeastSignificantBits();
+        long playerMost = playerUuid.getMostSignificantBits();
+        long playerLeast = playerUuid.getLeastSignificantBits();
+
+        int slot = this.find(warpMost, warpLeast, playerMost, playerLeast);
+        if (slot >= 0) {
+            if (!this.isExpired(slot, nowMillis)) return false;
+
+            // Restart the expired visit, the older generation
+            // will leave it alone as its time has changed.
+            this.times[slot] = nowMillis;
+            this.getGeneration(nowMillis).add(warpMost, warpLeast, playerMost, playerLeast);
+            return true;
+        }
+
+        // Keep the table at most half full.
+        if ((this.size + 1) * 2 > this.used.length) this.resize(this.used.length * 2);
+
+        this.insert(warpMost, warpLeast, playerMost, playerLeast, nowMillis);
+        this.size++;
+        this.getGeneration(nowMillis).add(warpMost, warpLeast, playerMost, playerLeast);
+        return true;
+    }
+
+    /**
+     * Used to remove the visits in every generation
+     * that has completely left the window.
+     *
+     * @param nowMillis The current time in milliseconds.
+     * @return The number of visits removed.
+     */
+    public int expire(long nowMillis) {
+        long stamp = this.lock.writeLock();
+        try {
+            return this.expireLocked(nowMillis);
+        } finally {
+            this.lock.unlockWrite(stamp);
+        }
+    }
+
+    private int expireLocked(long nowMillis) {
+        int removed = 0;
+
+        while (!this.generationQueue.isEmpty()) {
+            Generation generation = this.generationQueue.peekFirst();
+            if (generation.startMillis + this.generationMillis + this.windowMillis > nowMillis) break;
+            this.generationQueue.pollFirst();
+
+            for (int index = 0; index < generation.count; index += 4) {
+                int slot = this.find(
+                        generation.keys[index], generation.keys[index + 1],
+                        generation.keys[index + 2], generation.keys[index + 3]
+                );
+                if (slot < 0 || !this.isExpired(slot, nowMillis)) continue;
+                this.removeSlot(slot);
+                removed++;
+            }
+        }
+
+        // Give memory back after a busy window.
+        if (this.used.length > DEFAULT_CAPACITY && this.size * 8 < this.used.length) {
+            this.resize(Math.max(DEFAULT_CAPACITY, Integer.highestOneBit(Math.max(1, this.size)) * 4));
+        }
+
+        return removed;
+    }
+
+    /**
+     * Used to remove every visit from the set.
+     */
+    public void clear() {
+        long stamp = this.lock.writeLock();
+        try {
+            this.generationQueue.clear();
+            this.allocate(DEFAULT_CAPACITY);
+        } finally {
+            this.lock.unlockWrite(stamp);
+        }
+    }
+
+    private boolean isExpired(int slot, long nowMillis) {
+        return nowMillis - this.times[slot] >= this.windowMillis;
+    }
+
+    private @NotNull Generation getGeneration(long nowMillis) {
+        Generation generation = this.generationQueue.peekLast();
+        if (generation != null && nowMillis < generation.startMillis + this.generationMillis) return generation;
+
+        generation = new Generation(nowMillis);
+        this.generationQueue.addLast(generation);
+        return generation;
+    }
+
+    private int find(long warpMost, long warpLeast, long playerMost, long playerLeast) {
+        return WarpVisitSet.find(this.keys, this.used, warpMost, warpLeast, playerMost, playerLeast);
+    }
+
+    private static int find(long[] keys, boolean[] used,
+                            long warpMost, long warpLeast, long playerMost, long playerLeast) {
+
+        final int mask = used.length - 1;
+        int slot = WarpVisitSet.hash(warpMost, warpLeast, playerMost, playerLeast) & mask;
+
+        while (used[slot]) {
+            int index = slot * 4;
+            if (keys[index] == warpMost
+                    && keys[index + 1] == warpLeast
+                    && keys[index + 2] == playerMost
+                    && keys[index + 3] == playerLeast) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        return -1;
+    }
+
+    private void insert(long warpMost, long warpLeast, long playerMost, long playerLeast, long timeMillis) {
+        int slot = WarpVisitSet.hash(warpMost, warpLeast, playerMost, playerLeast) & this.mask;
+        while (this.used[slot]) slot = (slot + 1) & this.mask;
+
+        int index = slot * 4;
+        this.keys[index] = warpMost;
+        this.keys[index + 1] = warpLeast;
+        this.keys[index + 2] = playerMost;
+        this.keys[index + 3] = playerLeast;
+        this.times[slot] = timeMillis;
+        this.used[slot] = true;
+    }
+
+    /**
+     * Used to remove an entry by shifting the entries
+     * after it back, so no tombstones are needed.
+     *
+     * @param slot The slot to remove.
+     */
+    private void removeSlot(int slot) {
+        int hole = slot;
+        int next = (hole + 1) & this.mask;
+
+        while (this.used[next]) {
+            int index = next * 4;
+            int home = WarpVisitSet.hash(
+                    this.keys[index], this.keys[index + 1], this.keys[index + 2], this.keys[index + 3]
+            ) & this.mask;
+
+            // Move the entry if the hole is between its home and where it is.
+            if (((next - home) & this.mask) >= ((next - hole) & this.mask)) {
+                System.arraycopy(this.keys, index, this.keys, hole * 4, 4);
+                this.times[hole] = this.times[next];
+                hole = next;
+            }
+            next = (next + 1) & this.mask;
+        }
+
+        this.used[hole] = false;
+        this.size--;
+    }
+
+    private void resize(int capacity) {
+        long[] oldKeys = this.keys;
+        long[] oldTimes = this.times;
+        boolean[] oldUsed = this.used;
+        this.allocate(capacity);
+
+        for (int slot = 0; slot < oldUsed.length; slot++) {
+            if (!oldUsed[slot]) continue;
+            int index = slot * 4;
+            this.insert(oldKeys[index], oldKeys[index + 1], oldKeys[index + 2], oldKeys[index + 3], oldTimes[slot]);
+            this.size++;
+        }
+    }
+
+    private void allocate(int capacity) {
+        this.keys = new long[capacity * 4];
+        this.times = new long[capacity];
+        this.used = new boolean[capacity];
+        this.mask = capacity - 1;
+        this.size = 0;
+    }
+
+    private static int hash(long warpMost, long warpLeast, long playerMost, long playerLeast) {
+        long hash = warpMost ^ Long.rotateLeft(warpLeast, 16)
+                ^ Long.rotateLeft(playerMost, 32) ^ Long.rotateLeft(playerLeast, 48);
+        hash *= 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32));
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ * CozyWarps - Used to create player warps.
+ * Copyright (C) 2024 CozyPlugins
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.github.cozyplugins.cozywarps;
+
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.world.WorldLoadEvent;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Represents the listener that resolves warp locations
+ * when their world is loaded after the plugin,
+ * for example by a world management plugin.
+ */
+public class WarpWorldListener implements Listener {
+
+    private final @NotNull WarpRegistry registry;
+
+    /**
+     * Used to create a warp world listener.
+     *
+     * @param registry The registry of warps.
+     */
+    public WarpWorldListener(@NotNull WarpRegistry registry) {
+        this.registry = registry;
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onWorldLoad(@NotNull WorldLoadEvent event) {
+        final String worldName = event.getWorld().getName();
+
+        for (Warp warp : this.registry.getAllWarps()) {
+            WarpLocation storedLocation = warp.getStoredLocation();
+            if (storedLocation == null || !storedLocation.worldName().equals(worldName)) continue;
+
+            // Put the registered warp again so it is indexed in the world.
+            synchronized (this.registry.getLock(warp.getIdentifier())) {
+                Warp registered = this.registry.getWarp(warp.getIdentifier());
+                if (registered == null) continue;
+
+                if (registered.getHealth() == WarpHealth.ORPHANED) {
+                    this.registry.setHealth(registered, WarpHealth.UNKNOWN);
+                } else {
+                    this.registry.putWarp(registered);
+                }
+            }
+        }
+    }
+}
@@ -62,6 +62,10 @@ public class WarpsCommand implements CommandType {
         pool.add(new WarpsDeleteCommand());
         pool.add(new WarpsBanCommand());
         pool.add(new WarpsUnBanCommand());
+        pool.add(new WarpsSearchCommand());
+        pool.add(new WarpsNearCommand());
+        pool.add(new WarpsStatsCommand());
+        pool.add(new WarpsExportCommand());
         return pool;
     }
 
@@ -30,19 +30,20 @@ import com.github.cozyplugins.cozylibrary.user.FakeUser;
 import com.github.cozyplugins.cozylibrary.user.PlayerUser;
 import com.github.cozyplugins.cozylibrary.user.User;
 import com.github.cozyplugins.cozywarps.CozyWarps;
-import com.github.cozyplugins.cozywarps.Warp;
 import com.github.smuddgge.squishyconfiguration.interfaces.ConfigurationSection;
-import org.bukkit.Bukkit;
-import org.bukkit.OfflinePlayer;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.util.UUID;
+
 /**
  * Represents the warp delete command.
  * Used to delete a warp.
  */
 public class WarpsDeleteCommand implements CommandType {
 
+    private static final int MAX_SUGGESTIONS = 50;
+
     @Override
     public @NotNull String getIdentifier() {
         return "delete";
@@ -66,25 +67,29 @@ public class WarpsDeleteCommand implements CommandType {
     @Override
     public @Nullable CommandSuggestions getSuggestions(@NotNull User user, @NotNull ConfigurationSection section, @NotNull CommandArguments arguments) {
 
+        final String first = arguments.getArguments().isEmpty() ? "" : arguments.getArguments().get(0);
+
         // Check if they have staff permissions.
         if (user.hasPermission("cozywarps.staff")) {
 
             // Create the base suggestions.
             CommandSuggestions suggestions = new CommandSuggestions()
-                    .append(CozyWarps.getInstance().getManagerNames());
+                    .append(CozyWarps.getInstance().getManagerNames(first, MAX_SUGGESTIONS));
 
             // Add the players warps.
-            if (!arguments.getArguments().isEmpty() && !arguments.getArguments().get(0).isEmpty()) {
-                OfflinePlayer player = Bukkit.getOfflinePlayer(arguments.getArguments().get(0));
+            if (arguments.getArguments().size() > 1) {
+                UUID managerUuid = CozyWarps.getInstance().getManagerUuid(first);
+                if (managerUuid == null) return suggestions;
+
                 suggestions.append(CozyWarps.getInstance()
-                        .getAllWarps(player.getUniqueId()).stream().map(Warp::getName).toList()
+                        .getWarpNames(managerUuid, arguments.getArguments().get(1), MAX_SUGGESTIONS)
                 );
             }
             return suggestions;
         }
 
         return new CommandSuggestions().append(CozyWarps.getInstance()
-                .getAllWarps(user.getUuid()).stream().map(Warp::getName).toList()
+                .getWarpNames(user.getUuid(), first, MAX_SUGGESTIONS)
         );
     }
 
@@ -0,0 +1,100 @@
+/*
+ * CozyWarps - Used to create player warps.
+ * Copyright (C) 2024 CozyPlugins
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.github.cozyplugins.cozywarps.command;
+
+import com.github.cozyplugins.cozylibrary.command.command.CommandType;
+import com.github.cozyplugins.cozylibrary.command.datatype.CommandArguments;
+import com.github.cozyplugins.cozylibrary.command.datatype.CommandStatus;
+import com.github.cozyplugins.cozylibrary.command.datatype.CommandSuggestions;
+import com.github.cozyplugins.cozylibrary.command.datatype.CommandTypePool;
+import com.github.cozyplugins.cozylibrary.user.ConsoleUser;
+import com.github.cozyplugins.cozylibrary.user.FakeUser;
+import com.github.cozyplugins.cozylibrary.user.PlayerUser;
+import com.github.cozyplugins.cozylibrary.user.User;
+import com.github.cozyplugins.cozywarps.CozyWarps;
+import com.github.smuddgge.squishyconfiguration.interfaces.ConfigurationSection;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Represents the warp export command.
+ * Used by staff to turn the binary warp snapshot into yaml.
+ */
+public class WarpsExportCommand implements CommandType {
+
+    @Override
+    public @NotNull String getIdentifier() {
+        return "export";
+    }
+
+    @Override
+    public @Nullable String getSyntax() {
+        return "/[parent] [name]";
+    }
+
+    @Override
+    public @Nullable String getDescription() {
+        return "Used to export the warp snapshot to yaml.";
+    }
+
+    @Override
+    public @Nullable CommandTypePool getSubCommandTypes() {
+        return null;
+    }
+
+    @Override
+    public @Nullable CommandSuggestions getSuggestions(@NotNull User user, @NotNull ConfigurationSection section, @NotNull CommandArguments arguments) {
+        return null;
+    }
+
+    @Override
+    public @Nullable CommandStatus onUser(@NotNull User user, @NotNull ConfigurationSection section, @NotNull CommandArguments arguments) {
+
+        // Check if they have staff permissions.
+        if (!user.hasPermission("cozywarps.staff")) {
+            user.sendMessage("&7&l> &7You do not have permission to export the warps.");
+            return new CommandStatus();
+        }
+
+        user.sendMessage("&7&l> &7Exporting the warp snapshot.");
+        CozyWarps.getInstance().exportSnapshot().thenAccept(amount -> {
+            if (amount < 0) {
+                user.sendMessage("&7&l> &7There is no warp snapshot to export, check storage.snapshot is enabled.");
+                return;
+            }
+            user.sendMessage("&7&l> &7Exported &f" + amount + " &7warps to storage-export.yml.");
+        });
+        return new CommandStatus();
+    }
+
+    @Override
+    public @Nullable CommandStatus onPlayer(@NotNull PlayerUser user, @NotNull ConfigurationSection section, @NotNull CommandArguments arguments) {
+        return null;
+    }
+
+    @Override
+    public @Nullable CommandStatus onFakeUser(@NotNull FakeUser user, @NotNull ConfigurationSection section, @NotNull CommandArguments arguments) {
+        return null;
+    }
+
+    @Override
+    public @Nullable CommandStatus onConsole(@NotNull ConsoleUser user, @NotNull ConfigurationSection section, @NotNull CommandArguments arguments) {
+        return null;
+    }
+}
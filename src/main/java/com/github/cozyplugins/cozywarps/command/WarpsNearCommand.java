@@ -0,0 +1,116 @@
+/*
+ * CozyWarps - Used to create player warps.
+ * Copyright (C) 2024 CozyPlugins
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.github.cozyplugins.cozywarps.command;
+
+import com.github.cozyplugins.cozylibrary.command.command.CommandType;
+import com.github.cozyplugins.cozylibrary.command.datatype.CommandArguments;
+import com.github.cozyplugins.cozylibrary.command.datatype.CommandStatus;
+import com.github.cozyplugins.cozylibrary.command.datatype.CommandSuggestions;
+import com.github.cozyplugins.cozylibrary.command.datatype.CommandTypePool;
+import com.github.cozyplugins.cozylibrary.user.ConsoleUser;
+import com.github.cozyplugins.cozylibrary.user.FakeUser;
+import com.github.cozyplugins.cozylibrary.user.PlayerUser;
+import com.github.cozyplugins.cozylibrary.user.User;
+import com.github.cozyplugins.cozywarps.CozyWarps;
+import com.github.cozyplugins.cozywarps.Warp;
+import com.github.cozyplugins.cozywarps.inventory.WarpResultsInventory;
+import com.github.smuddgge.squishyconfiguration.interfaces.ConfigurationSection;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.List;
+
+/**
+ * Represents the warp near command.
+ * Used to find the warps close to the player.
+ */
+public class WarpsNearCommand implements CommandType {
+
+    @Override
+    public @NotNull String getIdentifier() {
+        return "near";
+    }
+
+    @Override
+    public @Nullable String getSyntax() {
+        return "/[parent] [name] [radius]";
+    }
+
+    @Override
+    public @Nullable String getDescription() {
+        return "Used to find warps near you.";
+    }
+
+    @Override
+    public @Nullable CommandTypePool getSubCommandTypes() {
+        return null;
+    }
+
+    @Override
+    public @Nullable CommandSuggestions getSuggestions(@NotNull User user, @NotNull ConfigurationSection section, @NotNull CommandArguments arguments) {
+        return new CommandSuggestions().append(List.of("[radius]"));
+    }
+
+    @Override
+    public @Nullable CommandStatus onUser(@NotNull User user, @NotNull ConfigurationSection section, @NotNull CommandArguments arguments) {
+        return null;
+    }
+
+    @Override
+    public @Nullable CommandStatus onPlayer(@NotNull PlayerUser user, @NotNull ConfigurationSection section, @NotNull CommandArguments arguments) {
+        int radius = CozyWarps.getInstance().getDefaultNearbyRadius();
+
+        // Check if they have given a radius.
+        if (!arguments.getArguments().isEmpty()) {
+            try {
+                radius = Integer.parseInt(arguments.getArguments().get(0));
+            } catch (NumberFormatException exception) {
+                radius = -1;
+            }
+
+            if (radius <= 0) {
+                user.sendMessage("&7&l> &7Incorrect arguments, the radius should be a number of blocks. &f" + this.getSyntax());
+                return new CommandStatus();
+            }
+        }
+
+        List<Warp> results = CozyWarps.getInstance().getNearbyWarps(
+                user.getPlayer().getLocation(), radius, WarpResultsInventory.MAX_RESULTS
+        );
+
+        // Check if there are no warps nearby.
+        if (results.isEmpty()) {
+            user.sendMessage("&7&l> &7There are no warps within &f" + radius + " &7blocks.");
+            return new CommandStatus();
+        }
+
+        new WarpResultsInventory(results).open(user.getPlayer());
+        return new CommandStatus();
+    }
+
+    @Override
+    public @Nullable CommandStatus onFakeUser(@NotNull FakeUser user, @NotNull ConfigurationSection section, @NotNull CommandArguments arguments) {
+        return null;
+    }
+
+    @Override
+    public @Nullable CommandStatus onConsole(@NotNull ConsoleUser user, @NotNull ConfigurationSection section, @NotNull CommandArguments arguments) {
+        return null;
+    }
+}
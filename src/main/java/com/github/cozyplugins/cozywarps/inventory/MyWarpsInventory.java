@@ -6,6 +6,8 @@ import com.github.cozyplugins.cozylibrary.inventory.action.action.ClickAction;
 import com.github.cozyplugins.cozylibrary.user.PlayerUser;
 import com.github.cozyplugins.cozywarps.CozyWarps;
 import com.github.cozyplugins.cozywarps.Warp;
+import com.github.cozyplugins.cozywarps.metrics.WarpMetrics;
+import com.github.cozyplugins.cozywarps.metrics.WarpTimer;
 import org.bukkit.Material;
 import org.jetbrains.annotations.NotNull;
 
@@ -36,6 +38,7 @@ public class MyWarpsInventory extends InventoryInterface {
 
     @Override
     protected void onGenerate(PlayerUser player) {
+        WarpTimer.Sample sample = CozyWarps.getInstance().getMetrics().start(WarpMetrics.MENU_MY_WARPS);
 
         clearPageContents();
 
@@ -117,6 +120,7 @@ public class MyWarpsInventory extends InventoryInterface {
 
         // --- Page contents ---
         addWarpItemsPaged(warps);
+        sample.stop();
     }
 
     private void addWarpItemsPaged(List<Warp> warps) {
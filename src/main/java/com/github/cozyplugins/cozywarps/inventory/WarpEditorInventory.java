@@ -29,6 +29,7 @@ import com.github.cozyplugins.cozywarps.CozyWarps;
 import com.github.cozyplugins.cozywarps.Warp;
 import org.bukkit.Bukkit;
 import org.bukkit.ChatColor;
+import org.bukkit.Location;
 import org.bukkit.Material;
 import org.bukkit.event.inventory.ClickType;
 import org.bukkit.event.inventory.InventoryClickEvent;
@@ -39,6 +40,7 @@ import org.jetbrains.annotations.Nullable;
 import java.util.ArrayList;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.function.Consumer;
 
 /**
  * Represents the warp editor.
@@ -122,10 +124,10 @@ public class WarpEditorInventory extends InventoryInterface {
                         }
 
                         // Set the material.
-                        warp.setMaterial(item.getMaterial());
-                        warp.save();
-
-                        user.sendMessage("&7&l> &7Changed the warp icon to " + warp.getMaterial().name() + ".");
+                        final Material material = item.getMaterial();
+                        if (WarpEditorInventory.this.edit(user, edited -> edited.setMaterial(material))) {
+                            user.sendMessage("&7&l> &7Changed the warp icon to " + material.name() + ".");
+                        }
                         WarpEditorInventory.this.open(user.getPlayer());
                         return new ActionResult().setCancelled(true);
                     }
@@ -144,9 +146,7 @@ public class WarpEditorInventory extends InventoryInterface {
                 .addAction(new AnvilValueAction()
                         .setAnvilTitle("&8&lWarp Name")
                         .setAction((value, user) -> {
-                            if (value != null && !value.isEmpty()) {
-                                warp.setName(value);
-                                warp.save();
+                            if (value != null && !value.isEmpty() && this.edit(user, edited -> edited.setName(value))) {
                                 user.sendMessage("&7&l> &7Warp name changed to " + value + ".");
                             }
                             this.open(user.getPlayer());
@@ -166,9 +166,7 @@ public class WarpEditorInventory extends InventoryInterface {
                 .addAction(new AnvilValueAction()
                         .setAnvilTitle("&8&lWarp Description")
                         .setAction((value, user) -> {
-                            if (value != null) {
-                                warp.setDescription(value);
-                                warp.save();
+                            if (value != null && this.edit(user, edited -> edited.setDescription(value))) {
                                 user.sendMessage("&7&l> &7Warp description changed to \"" + value + "\".");
                             }
                             this.open(user.getPlayer());
@@ -185,9 +183,10 @@ public class WarpEditorInventory extends InventoryInterface {
                         "&7you are standing.")
                 .addSlot(32)
                 .addAction((ClickAction) (user, type, inventory) -> {
-                    user.sendMessage("&7&l> &7Warps location has been changed.");
-                    warp.setLocation(user.getPlayer().getLocation());
-                    warp.save();
+                    final Location location = user.getPlayer().getLocation();
+                    if (this.edit(user, edited -> edited.setLocation(location))) {
+                        user.sendMessage("&7&l> &7Warps location has been changed.");
+                    }
                     this.open(user.getPlayer());
                 })
         );
@@ -206,8 +205,7 @@ public class WarpEditorInventory extends InventoryInterface {
                             if (value != null){
                                 if(Bukkit.getPlayer(value) != null){
                                     UUID newManagerUuid = Bukkit.getOfflinePlayer(value).getUniqueId();
-                                    warp.setManagerUuid(newManagerUuid);
-                                    warp.save();
+                                    this.edit(user, edited -> edited.setManagerUuid(newManagerUuid));
                                 }
                                 else{
                                     user.sendMessage(ChatColor.RED + "Player Not Valid or offline!");
@@ -244,6 +242,22 @@ public class WarpEditorInventory extends InventoryInterface {
         );
     }
 
+    /**
+     * Used to change the warp.
+     * The warp is changed through the plugin, so other
+     * threads do not see it while it is being changed.
+     *
+     * @param user   The user changing the warp.
+     * @param editor Used to change the warp.
+     * @return True if the warp was changed.
+     */
+    private boolean edit(@NotNull PlayerUser user, @NotNull Consumer<Warp> editor) {
+        if (CozyWarps.getInstance().editWarp(this.warpIdentifier, editor) != null) return true;
+
+        user.sendMessage("&7&l> &7Warp returned null, something went wrong.");
+        return false;
+    }
+
     /**
      * Used to get the instance of the warp.
      *
@@ -0,0 +1,75 @@
+/*
+ * CozyWarps - Used to create player warps.
+ * Copyright (C) 2024 CozyPlugins
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.github.cozyplugins.cozywarps.inventory;
+
+import com.github.cozyplugins.cozywarps.CozyWarps;
+import com.github.cozyplugins.cozywarps.Warp;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Represents the warp results inventory.
+ * It works like the warp's inventory, but only
+ * contains the warps that matched a search
+ * or were found near a player.
+ */
+public class WarpResultsInventory extends WarpsInventory {
+
+    /**
+     * The maximum number of results, five pages.
+     */
+    public static final int MAX_RESULTS = 225;
+
+    private final @NotNull List<Warp> results;
+
+    /**
+     * Used to create a search results inventory.
+     * The search is run straight away.
+     *
+     * @param query The search query.
+     */
+    public WarpResultsInventory(@NotNull String query) {
+        super();
+        this.results = CozyWarps.getInstance().searchWarps(query, MAX_RESULTS);
+    }
+
+    /**
+     * Used to create a results inventory
+     * from warps that have already been found.
+     *
+     * @param results The warps to show, in order.
+     */
+    public WarpResultsInventory(@NotNull List<Warp> results) {
+        super();
+        this.results = results;
+    }
+
+    @Override
+    protected @NotNull List<Warp> getWarps(int offset, int limit) {
+        if (offset >= this.results.size()) return new ArrayList<>();
+        return this.results.subList(offset, Math.min(this.results.size(), offset + limit));
+    }
+
+    @Override
+    protected int getAmountOfWarps() {
+        return this.results.size();
+    }
+}
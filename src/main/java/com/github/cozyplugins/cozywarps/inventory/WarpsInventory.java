@@ -30,8 +30,11 @@ import com.github.cozyplugins.cozylibrary.inventory.inventory.ConfirmationInvent
 import com.github.cozyplugins.cozylibrary.user.PlayerUser;
 import com.github.cozyplugins.cozywarps.CozyWarps;
 import com.github.cozyplugins.cozywarps.Warp;
+import com.github.cozyplugins.cozywarps.WarpSearchIndex;
 import com.github.cozyplugins.cozywarps.WarpVisit;
 import com.github.cozyplugins.cozywarps.command.WarpsCreateCommand;
+import com.github.cozyplugins.cozywarps.metrics.WarpMetrics;
+import com.github.cozyplugins.cozywarps.metrics.WarpTimer;
 import com.github.smuddgge.squishyconfiguration.memory.MemoryConfigurationSection;
 import org.bukkit.Bukkit;
 import org.bukkit.ChatColor;
@@ -69,6 +72,7 @@ public class WarpsInventory extends InventoryInterface implements Listener {
 
     @Override
     protected void onGenerate(PlayerUser player) {
+        WarpTimer.Sample sample = CozyWarps.getInstance().getMetrics().start(WarpMetrics.MENU_WARPS);
 
         clearPageContents();
 
@@ -95,7 +99,31 @@ public class WarpsInventory extends InventoryInterface implements Listener {
                             CozyWarps.getInstance().createWarp(user, value, user.getPlayer().getLocation());
                         })
                 )
-                .addSlot(45, 46, 47)
+                .addSlot(45, 46)
+        );
+
+        // Search button.
+        this.setItem(new InventoryItem()
+                .setMaterial(Material.PINK_STAINED_GLASS_PANE)
+                .setCustomModelData(1)
+                .setName("&e&lSearch")
+                .setLore("&7Click to search for warps",
+                        "&7by their name or description.")
+                .addAction(new AnvilValueAction()
+                        .setAnvilTitle("&8&lSearch Warps")
+                        .setAction((value, user) -> {
+                            if (value == null || value.isBlank()) {
+                                user.sendMessage("&7&l> &7Aborted warp search.");
+                                return;
+                            }
+                            if (!WarpSearchIndex.isSearchable(value)) {
+                                user.sendMessage("&7&l> &7Please search for words of at least &f" + WarpSearchIndex.MIN_PREFIX_LENGTH + " &7letters.");
+                                return;
+                            }
+                            new WarpResultsInventory(value).open(user.getPlayer());
+                        })
+                )
+                .addSlot(47)
         );
 
         // Help button.
@@ -109,6 +137,7 @@ public class WarpsInventory extends InventoryInterface implements Listener {
                         "&a/warps &fTo list all warps.",
                         "&a/warps create <name> &fTo create a warp.",
                         "&a/warps delete <name> &fTo delete a warp.",
+                        "&a/warps search <query> &fTo search for warps.",
                         "&7",
                         "&c&lPlease Note: &r&7Warps belong to the community, not the creators. ",
                         "&7Server staff may change warp management",
@@ -165,6 +194,7 @@ public class WarpsInventory extends InventoryInterface implements Listener {
 
         // Add all the warps.
         this.addAllWarps(player);
+        sample.stop();
 
 
     }
@@ -182,28 +212,10 @@ public class WarpsInventory extends InventoryInterface implements Listener {
      */
     public @NotNull WarpsInventory addAllWarps(PlayerUser player) {
 
-        int warpNumber = 0;
-        int startingSlot = this.page * 45;
-        int endingSlot = (this.page + 1) * 45;
-
-        List<Warp> list = CozyWarps.getInstance().getAllWarps();
-        list.sort(Warp::compareTo);
+        int warpNumber = this.page * 45;
 
-        // Loop though all the warps.
-        for (Warp warp : list) {
-
-            // Check if the warp number is smaller than the
-            // starting slot.
-            if (warpNumber < startingSlot) {
-                warpNumber++;
-                continue;
-            }
-
-            // Check if the warp number is equal to the ending
-            // slot, then finish creating the warps.
-            if (warpNumber == endingSlot) {
-                return this;
-            }
+        // Loop though the warps on this page.
+        for (Warp warp : this.getWarps(warpNumber, 45)) {
 
             // Create the base item.
             InventoryItem item = warp.createInventoryItem()
@@ -228,7 +240,6 @@ public class WarpsInventory extends InventoryInterface implements Listener {
 
                                 // Increment the number of times visited.
                                 warp.incrementVisits();
-                                warp.save();
                             }
                         }
                         else{
@@ -247,7 +258,6 @@ public class WarpsInventory extends InventoryInterface implements Listener {
 
                                     // Increment the number of times visited.
                                     warp.incrementVisits();
-                                    warp.save();
                                 }
                             }
                         }
@@ -270,7 +280,6 @@ public class WarpsInventory extends InventoryInterface implements Listener {
 
                                 // Increment the number of times visited.
                                 warp.incrementVisits();
-                                warp.save();
                             }
                         }
 
@@ -286,11 +295,33 @@ public class WarpsInventory extends InventoryInterface implements Listener {
         return this;
     }
 
+    /**
+     * Used to get the warps shown in this inventory,
+     * in the order they are shown.
+     *
+     * @param offset The position of the first warp.
+     * @param limit  The maximum number of warps.
+     * @return The list of warps.
+     */
+    protected @NotNull List<Warp> getWarps(int offset, int limit) {
+        return CozyWarps.getInstance().getPopularWarps(offset, limit);
+    }
+
+    /**
+     * Used to get the number of warps shown
+     * in this inventory.
+     *
+     * @return The number of warps.
+     */
+    protected int getAmountOfWarps() {
+        return CozyWarps.getInstance().getAmountOfWarps();
+    }
+
     /**
      * @return the last valid page index (zero-based)
      */
     public int getMaxPages() {
-        int total = CozyWarps.getInstance().getAllWarps().size();
+        int total = this.getAmountOfWarps();
         if (total <= 0) return 0;
         int totalPages = (int) Math.ceil(total / 45.0);
         return totalPages - 1; // last index
@@ -0,0 +1,154 @@
+/*
+ * CozyWarps - Used to create player warps.
+ * Copyright (C) 2024 CozyPlugins
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.github.cozyplugins.cozywarps.metrics;
+
+import org.bukkit.Bukkit;
+import org.bukkit.plugin.Plugin;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Represents the timers for the plugin's hot paths.
+ * The results can be shown with /warps stats and
+ * appended to metrics.log on a schedule, so they can be
+ * lined up with tick spikes.
+ */
+public class WarpMetrics {
+
+    public static final @NotNull String MENU_WARPS = "menu.warps";
+    public static final @NotNull String MENU_MY_WARPS = "menu.my-warps";
+    public static final @NotNull String STORAGE_LOAD = "storage.load";
+    public static final @NotNull String STORAGE_UPDATE_WARP = "storage.update-warp";
+    public static final @NotNull String STORAGE_BAN = "storage.ban";
+    public static final @NotNull String LOOKUP_WARP = "lookup.warp";
+    public static final @NotNull String LOOKUP_BANNED = "lookup.banned";
+    public static final @NotNull String LOOKUP_VISITED = "lookup.visited";
+    public static final @NotNull String LOOKUP_SEARCH = "lookup.search";
+    public static final @NotNull String LOOKUP_NEARBY = "lookup.nearby";
+    public static final @NotNull String SAFETY_CHECK = "safety.check";
+    public static final @NotNull String SAFETY_EVALUATE = "safety.evaluate";
+    public static final @NotNull String TELEPORT = "teleport";
+
+    private static final long MAX_FILE_BYTES = 1024 * 1024;
+
+    private final @NotNull Map<String, WarpTimer> timerMap;
+
+    /**
+     * Used to create an empty set of metrics.
+     */
+    public WarpMetrics() {
+        this.timerMap = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Used to get a timer, creating it if needed.
+     *
+     * @param name The name of the timer.
+     * @return The timer.
+     */
+    public @NotNull WarpTimer getTimer(@NotNull String name) {
+        return this.timerMap.computeIfAbsent(name, WarpTimer::new);
+    }
+
+    /**
+     * Used to start timing a call.
+     *
+     * @param name The name of the timer.
+     * @return The sample to stop when the call finishes.
+     */
+    public @NotNull WarpTimer.Sample start(@NotNull String name) {
+        return this.getTimer(name).start();
+    }
+
+    /**
+     * Used to get the results of every timer,
+     * ordered by name.
+     *
+     * @return The list of snapshots.
+     */
+    public @NotNull List<WarpTimer.Snapshot> getSnapshots() {
+        List<WarpTimer.Snapshot> list = new ArrayList<>();
+        for (WarpTimer timer : this.timerMap.values()) list.add(timer.getSnapshot());
+        list.sort((snapshot, other) -> snapshot.name().compareTo(other.name()));
+        return list;
+    }
+
+    /**
+     * Used to append the results of every timer to
+     * metrics.log in the background on a schedule.
+     * The file is moved to metrics.log.old when it gets large.
+     *
+     * @param plugin        The instance of the plugin.
+     * @param intervalTicks The number of ticks between writes.
+     * @return This instance.
+     */
+    public @NotNull WarpMetrics startFileWriter(@NotNull Plugin plugin, long intervalTicks) {
+        final File file = new File(plugin.getDataFolder(), "metrics.log");
+
+        Bukkit.getScheduler().runTaskTimerAsynchronously(plugin, () -> {
+            StringBuilder builder = new StringBuilder();
+            String time = Instant.now().toString();
+            for (WarpTimer.Snapshot snapshot : this.getSnapshots()) {
+                builder.append(time).append(' ').append(WarpMetrics.format(snapshot)).append('\n');
+            }
+            if (builder.length() == 0) return;
+
+            try {
+                if (file.length() > MAX_FILE_BYTES) {
+                    Files.move(file.toPath(), new File(plugin.getDataFolder(), "metrics.log.old").toPath(),
+                            StandardCopyOption.REPLACE_EXISTING);
+                }
+                Files.writeString(file.toPath(), builder, StandardCharsets.UTF_8,
+                        StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            } catch (IOException exception) {
+                plugin.getLogger().warning("Unable to write the metrics file: " + exception.getMessage());
+            }
+        }, intervalTicks, intervalTicks);
+        return this;
+    }
+
+    /**
+     * Used to get a snapshot as a single line of text.
+     *
+     * @param snapshot The snapshot of a timer.
+     * @return The line of text.
+     */
+    public static @NotNull String format(@NotNull WarpTimer.Snapshot snapshot) {
+        return String.format(
+                "%s count=%d p50=%.3fms p99=%.3fms rate=%.2f/s alloc=%dB/call",
+                snapshot.name(),
+                snapshot.count(),
+                snapshot.p50Nanos() / 1000000.0,
+                snapshot.p99Nanos() / 1000000.0,
+                snapshot.ratePerSecond(),
+                snapshot.bytesPerCall()
+        );
+    }
+}
@@ -0,0 +1,218 @@
+/*
+ * CozyWarps - Used to create player warps.
+ * Copyright (C) 2024 CozyPlugins
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.github.cozyplugins.cozywarps.metrics;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Represents a timer for one path through the plugin.
+ * It keeps a sample of recent call times to work out
+ * percentiles, the number of calls in each of the last
+ * sixty seconds and the bytes allocated by the calling thread.
+ * <p>
+ * Recording does not take a lock, as timers are used on
+ * lookups that can run on many threads at once. Each call
+ * is kept in a random slot of the reservoir, replacing an
+ * older call, so the percentiles favour recent calls.
+ */
+public class WarpTimer {
+
+    private static final int RESERVOIR_SIZE = 1024;
+    private static final int RATE_SECONDS = 60;
+
+    private static final com.sun.management.ThreadMXBean THREAD_BEAN = WarpTimer.findThreadBean();
+
+    private static final long EMPTY = -1;
+
+    private final @NotNull String name;
+    private final @NotNull AtomicLongArray reservoir;
+    private final @NotNull LongAdder[] rateCounts;
+    private final @NotNull AtomicLongArray rateSeconds;
+
+    private final @NotNull LongAdder count;
+    private final @NotNull LongAdder totalNanos;
+    private final @NotNull LongAdder totalBytes;
+
+    /**
+     * Represents one timed call.
+     */
+    public class Sample {
+
+        private final long startNanos;
+        private final long startBytes;
+
+        private Sample() {
+            this.startBytes = WarpTimer.getAllocatedBytes();
+            this.startNanos = System.nanoTime();
+        }
+
+        /**
+         * Used to stop timing the call.
+         * This should be called on the thread that started it.
+         */
+        public void stop() {
+            long nanos = System.nanoTime() - this.startNanos;
+            long bytes = this.startBytes < 0 ? 0 : Math.max(0, WarpTimer.getAllocatedBytes() - this.startBytes);
+            WarpTimer.this.record(nanos, bytes);
+        }
+    }
+
+    /**
+     * Represents the results of a timer at one point in time.
+     *
+     * @param name           The name of the timer.
+     * @param count          The number of calls.
+     * @param p50Nanos       The median call time.
+     * @param p99Nanos       The 99th percentile call time.
+     * @param ratePerSecond  The calls per second over the last minute.
+     * @param bytesPerCall   The average bytes allocated by each call.
+     */
+    public record Snapshot(@NotNull String name,
+                           long count,
+                           long p50Nanos,
+                           long p99Nanos,
+                           double ratePerSecond,
+                           long bytesPerCall) {
+    }
+
+    /**
+     * Used to create a timer.
+     *
+     * @param name The name of the timer.
+     */
+    public WarpTimer(@NotNull String name) {
+        this.name = name;
+        this.reservoir = new AtomicLongArray(RESERVOIR_SIZE);
+        for (int index = 0; index < RESERVOIR_SIZE; index++) this.reservoir.set(index, EMPTY);
+
+        this.rateCounts = new LongAdder[RATE_SECONDS];
+        for (int index = 0; index < RATE_SECONDS; index++) this.rateCounts[index] = new LongAdder();
+        this.rateSeconds = new AtomicLongArray(RATE_SECONDS);
+
+        this.count = new LongAdder();
+        this.totalNanos = new LongAdder();
+        this.totalBytes = new LongAdder();
+    }
+
+    /**
+     * Used to get the name of the timer.
+     *
+     * @return The name of the timer.
+     */
+    public @NotNull String getName() {
+        return this.name;
+    }
+
+    /**
+     * Used to start timing a call.
+     *
+     * @return The sample to stop when the call finishes.
+     */
+    public @NotNull Sample start() {
+        return new Sample();
+    }
+
+    /**
+     * Used to record a call that was timed elsewhere,
+     * such as one that finished on another thread.
+     * This can be called from any thread.
+     *
+     * @param nanos The time the call took.
+     * @param bytes The bytes the call allocated.
+     */
+    public void record(long nanos, long bytes) {
+        this.count.increment();
+        this.totalNanos.add(nanos);
+        this.totalBytes.add(bytes);
+        this.reservoir.set(ThreadLocalRandom.current().nextInt(RESERVOIR_SIZE), Math.max(0, nanos));
+
+        // Count the call in the current second. The first call
+        // in a new second clears the count from a minute ago.
+        long second = System.currentTimeMillis() / 1000;
+        int index = (int) (second % RATE_SECONDS);
+        long previousSecond = this.rateSeconds.get(index);
+        if (previousSecond != second && this.rateSeconds.compareAndSet(index, previousSecond, second)) {
+            this.rateCounts[index].reset();
+        }
+        this.rateCounts[index].increment();
+    }
+
+    /**
+     * Used to get the current results of the timer.
+     *
+     * @return The snapshot of the results.
+     */
+    public @NotNull Snapshot getSnapshot() {
+        long[] samples = new long[RESERVOIR_SIZE];
+        int size = 0;
+        for (int index = 0; index < RESERVOIR_SIZE; index++) {
+            long nanos = this.reservoir.get(index);
+            if (nanos != EMPTY) samples[size++] = nanos;
+        }
+        samples = Arrays.copyOf(samples, size);
+        Arrays.sort(samples);
+
+        long p50 = size == 0 ? 0 : samples[(int) Math.min(size - 1, size * 0.50)];
+        long p99 = size == 0 ? 0 : samples[(int) Math.min(size - 1, size * 0.99)];
+
+        // Add up the calls in the last minute.
+        long second = System.currentTimeMillis() / 1000;
+        long calls = 0;
+        for (int index = 0; index < RATE_SECONDS; index++) {
+            if (second - this.rateSeconds.get(index) < RATE_SECONDS) calls += this.rateCounts[index].sum();
+        }
+
+        long count = this.count.sum();
+        return new Snapshot(
+                this.name,
+                count,
+                p50,
+                p99,
+                calls / (double) RATE_SECONDS,
+                count == 0 ? 0 : this.totalBytes.sum() / count
+        );
+    }
+
+    /**
+     * Used to get the bytes allocated by the current thread.
+     *
+     * @return The number of bytes or -1 if it is not supported.
+     */
+    private static long getAllocatedBytes() {
+        if (THREAD_BEAN == null) return -1;
+        return THREAD_BEAN.getCurrentThreadAllocatedBytes();
+    }
+
+    private static com.sun.management.ThreadMXBean findThreadBean() {
+        try {
+            if (!(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean bean)) return null;
+            if (!bean.isThreadAllocatedMemorySupported()) return null;
+            if (!bean.isThreadAllocatedMemoryEnabled()) bean.setThreadAllocatedMemoryEnabled(true);
+            return bean;
+        } catch (UnsupportedOperationException | SecurityException exception) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,61 @@
+/*
+ * CozyWarps - Used to create player warps.
+ * Copyright (C) 2024 CozyPlugins
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.github.cozyplugins.cozywarps.storage;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.UUID;
+import java.util.function.BiConsumer;
+
+/**
+ * Represents where the players banned
+ * from an owner's warps are persisted.
+ */
+public interface BanRepository {
+
+    /**
+     * Used to load every stored ban.
+     *
+     * @param consumer Given the owner's uuid and the
+     *                 banned player's uuid of each ban.
+     */
+    void loadBans(@NotNull BiConsumer<UUID, UUID> consumer);
+
+    /**
+     * Used to ban a player from an owner's warps.
+     *
+     * @param playerUuid The player's uuid.
+     * @param ownerUuid  The owner's uuid.
+     */
+    void banPlayer(@NotNull UUID playerUuid, @NotNull UUID ownerUuid);
+
+    /**
+     * Used to unban a player from an owner's warps.
+     *
+     * @param playerUuid The player's uuid.
+     * @param ownerUuid  The owner's uuid.
+     */
+    void unBanPlayer(@NotNull UUID playerUuid, @NotNull UUID ownerUuid);
+
+    /**
+     * Used to write any pending changes and
+     * release the repository's resources.
+     */
+    void close();
+}
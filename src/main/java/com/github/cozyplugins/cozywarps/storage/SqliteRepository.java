@@ -0,0 +1,320 @@
+/*
+ * CozyWarps - Used to create player warps.
+ * Copyright (C) 2024 CozyPlugins
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.github.cozyplugins.cozywarps.storage;
+
+import com.github.cozyplugins.cozywarps.Warp;
+import com.github.cozyplugins.cozywarps.WarpLocation;
+import org.bukkit.plugin.Plugin;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * Represents the embedded sqlite repository.
+ * Warps and bans are kept in warps.db, with indexed
+ * columns for the manager, name and visits.
+ * <p>
+ * Each change only writes its own row and is run on a
+ * single background thread, in the order it was made.
+ * The sqlite driver is provided by the server.
+ */
+public class SqliteRepository implements WarpRepository, BanRepository {
+
+    private final @NotNull Plugin plugin;
+    private final @NotNull Connection connection;
+    private final @NotNull ExecutorService executor;
+
+    /**
+     * Used to create a sqlite repository.
+     * The database and tables are created if needed.
+     *
+     * @param plugin The instance of the plugin.
+     * @throws SQLException If the database could not be opened.
+     */
+    public SqliteRepository(@NotNull Plugin plugin) throws SQLException {
+        this.plugin = plugin;
+        plugin.getDataFolder().mkdirs();
+
+        File file = new File(plugin.getDataFolder(), "warps.db");
+        this.connection = DriverManager.getConnection("jdbc:sqlite:" + file.getAbsolutePath());
+        this.executor = Executors.newSingleThreadExecutor(runnable -> new Thread(runnable, "CozyWarps Storage"));
+
+        try (Statement statement = this.connection.createStatement()) {
+            statement.executeUpdate("CREATE TABLE IF NOT EXISTS warps ("
+                    + "identifier TEXT PRIMARY KEY, "
+                    + "creator TEXT NOT NULL, "
+                    + "manager TEXT NOT NULL, "
+                    + "name TEXT NOT NULL, "
+                    + "description TEXT, "
+                    + "material TEXT NOT NULL, "
+                    + "world TEXT, "
+                    + "x INTEGER, y INTEGER, z INTEGER, "
+                    + "pitch REAL, yaw REAL, "
+                    + "visits INTEGER NOT NULL DEFAULT 0)");
+            statement.executeUpdate("CREATE INDEX IF NOT EXISTS warps_manager ON warps (manager, name)");
+            statement.executeUpdate("CREATE INDEX IF NOT EXISTS warps_visits ON warps (visits DESC)");
+            statement.executeUpdate("CREATE TABLE IF NOT EXISTS bans ("
+                    + "owner TEXT NOT NULL, "
+                    + "player TEXT NOT NULL, "
+                    + "PRIMARY KEY (owner, player))");
+        }
+    }
+
+    /**
+     * Used to check if the database contains no warps.
+     *
+     * @return True if there are no warps.
+     */
+    public boolean isEmpty() {
+        synchronized (this.connection) {
+            try (Statement statement = this.connection.createStatement();
+                 ResultSet results = statement.executeQuery("SELECT 1 FROM warps LIMIT 1")) {
+                return !results.next();
+            } catch (SQLException exception) {
+                this.warn("check the warps table", exception);
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Used to wait until every queued change
+     * has been written to the database.
+     */
+    public void flush() {
+        try {
+            this.executor.submit(() -> {}).get();
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException exception) {
+            this.plugin.getLogger().warning("Unable to wait for warp storage changes: " + exception.getMessage());
+        }
+    }
+
+    @Override
+    public void loadWarps(@NotNull Consumer<Warp> consumer) {
+        synchronized (this.connection) {
+            try (Statement statement = this.connection.createStatement();
+                 ResultSet results = statement.executeQuery("SELECT * FROM warps")) {
+
+                while (results.next()) {
+                    Warp warp = new Warp(UUID.fromString(results.getString("identifier")))
+                            .setCreatorUuid(UUID.fromString(results.getString("creator")))
+                            .setManagerUuid(UUID.fromString(results.getString("manager")))
+                            .setName(results.getString("name"))
+                            .setDescription(results.getString("description"))
+                            .setMaterialAsString(results.getString("material"))
+                            .setVisits(results.getInt("visits"));
+
+                    String worldName = results.getString("world");
+                    if (worldName != null) {
+                        warp.setStoredLocation(new WarpLocation(
+                                worldName,
+                                results.getInt("x"),
+                                results.getInt("y"),
+                                results.getInt("z"),
+                                results.getFloat("pitch"),
+                                results.getFloat("yaw")
+                        ));
+                    }
+
+                    consumer.accept(warp);
+                }
+
+            } catch (SQLException exception) {
+                this.warn("load the warps", exception);
+            }
+        }
+    }
+
+    @Override
+    public void saveWarp(@NotNull Warp warp) {
+
+        // Read the warp on the calling thread, so later
+        // changes to the instance are not written early.
+        final String identifier = warp.getIdentifier().toString();
+        final String creator = warp.getCreatorUuid().toString();
+        final String manager = warp.getManagerUuid().toString();
+        final String name = warp.getName();
+        final String description = warp.getDescription();
+        final String material = warp.getMaterial().name();
+        final int visits = warp.getSavedVisits();
+        final WarpLocation location = warp.getStoredLocation();
+        final String world = location == null ? null : location.worldName();
+        final int x = location == null ? 0 : location.x();
+        final int y = location == null ? 0 : location.y();
+        final int z = location == null ? 0 : location.z();
+        final float pitch = location == null ? 0 : location.pitch();
+        final float yaw = location == null ? 0 : location.yaw();
+
+        this.execute("save the warp " + name, connection -> {
+            try (PreparedStatement statement = connection.prepareStatement("INSERT OR REPLACE INTO warps "
+                    + "(identifier, creator, manager, name, description, material, world, x, y, z, pitch, yaw, visits) "
+                    + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)")) {
+                statement.setString(1, identifier);
+                statement.setString(2, creator);
+                statement.setString(3, manager);
+                statement.setString(4, name);
+                statement.setString(5, description);
+                statement.setString(6, material);
+                if (world == null) {
+                    statement.setNull(7, Types.VARCHAR);
+                } else {
+                    statement.setString(7, world);
+                }
+                statement.setInt(8, x);
+                statement.setInt(9, y);
+                statement.setInt(10, z);
+                statement.setFloat(11, pitch);
+                statement.setFloat(12, yaw);
+                statement.setInt(13, visits);
+                statement.executeUpdate();
+            }
+        });
+    }
+
+    @Override
+    public void saveVisits(@NotNull Collection<Warp> warps) {
+        final List<String> identifiers = new ArrayList<>(warps.size());
+        final List<Integer> visits = new ArrayList<>(warps.size());
+        for (Warp warp : warps) {
+            identifiers.add(warp.getIdentifier().toString());
+            visits.add(warp.getSavedVisits());
+        }
+
+        this.execute("save warp visits", connection -> {
+            try (PreparedStatement statement = connection.prepareStatement("UPDATE warps SET visits = ? WHERE identifier = ?")) {
+                for (int index = 0; index < identifiers.size(); index++) {
+                    statement.setInt(1, visits.get(index));
+                    statement.setString(2, identifiers.get(index));
+                    statement.addBatch();
+                }
+                statement.executeBatch();
+            }
+        });
+    }
+
+    @Override
+    public void removeWarp(@NotNull UUID identifier) {
+        this.execute("remove a warp", connection -> {
+            try (PreparedStatement statement = connection.prepareStatement("DELETE FROM warps WHERE identifier = ?")) {
+                statement.setString(1, identifier.toString());
+                statement.executeUpdate();
+            }
+        });
+    }
+
+    @Override
+    public void loadBans(@NotNull BiConsumer<UUID, UUID> consumer) {
+        synchronized (this.connection) {
+            try (Statement statement = this.connection.createStatement();
+                 ResultSet results = statement.executeQuery("SELECT owner, player FROM bans")) {
+                while (results.next()) {
+                    consumer.accept(UUID.fromString(results.getString(1)), UUID.fromString(results.getString(2)));
+                }
+            } catch (SQLException exception) {
+                this.warn("load the bans", exception);
+            }
+        }
+    }
+
+    @Override
+    public void banPlayer(@NotNull UUID playerUuid, @NotNull UUID ownerUuid) {
+        this.execute("ban a player", connection -> {
+            try (PreparedStatement statement = connection.prepareStatement("INSERT OR IGNORE INTO bans (owner, player) VALUES (?, ?)")) {
+                statement.setString(1, ownerUuid.toString());
+                statement.setString(2, playerUuid.toString());
+                statement.executeUpdate();
+            }
+        });
+    }
+
+    @Override
+    public void unBanPlayer(@NotNull UUID playerUuid, @NotNull UUID ownerUuid) {
+        this.execute("unban a player", connection -> {
+            try (PreparedStatement statement = connection.prepareStatement("DELETE FROM bans WHERE owner = ? AND player = ?")) {
+                statement.setString(1, ownerUuid.toString());
+                statement.setString(2, playerUuid.toString());
+                statement.executeUpdate();
+            }
+        });
+    }
+
+    @Override
+    public void close() {
+
+        // Let the queued changes finish first.
+        this.executor.shutdown();
+        try {
+            if (!this.executor.awaitTermination(30, TimeUnit.SECONDS)) {
+                this.plugin.getLogger().warning("Timed out waiting for warp storage changes to be written.");
+            }
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+        }
+
+        synchronized (this.connection) {
+            try {
+                this.connection.close();
+            } catch (SQLException exception) {
+                this.warn("close the database", exception);
+            }
+        }
+    }
+
+    /**
+     * Represents a change made using the connection.
+     */
+    private interface Change {
+        void run(@NotNull Connection connection) throws SQLException;
+    }
+
+    private void execute(@NotNull String description, @NotNull Change change) {
+        this.executor.execute(() -> {
+            synchronized (this.connection) {
+                try {
+                    change.run(this.connection);
+                } catch (SQLException exception) {
+                    this.warn(description, exception);
+                }
+            }
+        });
+    }
+
+    private void warn(@NotNull String action, @NotNull SQLException exception) {
+        this.plugin.getLogger().warning("Unable to " + action + ": " + exception.getMessage());
+    }
+}
@@ -0,0 +1,406 @@
+/*
+ * CozyWarps - Used to create player warps.
+ * Copyright (C) 2024 CozyPlugins
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.github.cozyplugins.cozywarps.storage;
+
+import com.github.cozyplugins.cozywarps.Warp;
+import com.github.cozyplugins.cozywarps.WarpLocation;
+import org.bukkit.Bukkit;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.UUID;
+import java.util.zip.CRC32;
+
+/**
+ * Represents the append only log of changes
+ * made to warps and bans.
+ * <p>
+ * Each change is written as a small record, so the
+ * cost of a write does not depend on the number of warps.
+ * The log is replayed over the last snapshot on startup
+ * and is folded back into a snapshot by compaction.
+ */
+public class WarpJournal {
+
+    private static final byte WARP = 1;
+    private static final byte WARP_REMOVED = 2;
+    private static final byte BAN = 3;
+    private static final byte UNBAN = 4;
+    private static final byte VISITS = 5;
+
+    /**
+     * The largest record that can be replayed.
+     * A warp record is a few strings and numbers,
+     * so anything larger is a damaged length.
+     */
+    private static final int MAX_RECORD_SIZE = 1 << 20;
+
+    private final @NotNull File file;
+    private final @NotNull File compactingFile;
+    private @Nullable DataOutputStream output;
+
+    /**
+     * Represents what to do with each record
+     * when the journal is replayed.
+     */
+    public interface Handler {
+
+        /**
+         * Called when a warp was inserted or updated.
+         *
+         * @param warp The instance of the warp.
+         */
+        void onWarp(@NotNull Warp warp);
+
+        /**
+         * Called when the saved visits of a warp changed.
+         *
+         * @param identifier The warp's unique identifier.
+         * @param visits     The number of saved visits.
+         */
+        void onVisits(@NotNull UUID identifier, int visits);
+
+        /**
+         * Called when a warp was removed.
+         *
+         * @param identifier The warp's unique identifier.
+         */
+        void onWarpRemoved(@NotNull UUID identifier);
+
+        /**
+         * Called when a player was banned from an owner's warps.
+         *
+         * @param ownerUuid  The owner's uuid.
+         * @param playerUuid The banned player's uuid.
+         */
+        void onBan(@NotNull UUID ownerUuid, @NotNull UUID playerUuid);
+
+        /**
+         * Called when a player was unbanned from an owner's warps.
+         *
+         * @param ownerUuid  The owner's uuid.
+         * @param playerUuid The unbanned player's uuid.
+         */
+        void onUnBan(@NotNull UUID ownerUuid, @NotNull UUID playerUuid);
+    }
+
+    /**
+     * Used to create a warp journal.
+     *
+     * @param folder The folder to keep the journal in.
+     */
+    public WarpJournal(@NotNull File folder) {
+        this.file = new File(folder, "journal.log");
+        this.compactingFile = new File(folder, "journal.compacting.log");
+    }
+
+    /**
+     * Used to get the size of the active log in bytes.
+     *
+     * @return The size of the log.
+     */
+    public long getSize() {
+        return this.file.length();
+    }
+
+    /**
+     * Used to append a warp insert or update.
+     *
+     * @param warp The instance of the warp.
+     * @return This instance.
+     */
+    public @NotNull WarpJournal appendWarp(@NotNull Warp warp) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+        try (DataOutputStream record = new DataOutputStream(bytes)) {
+            record.writeByte(WARP);
+            WarpJournal.writeUuid(record, warp.getIdentifier());
+            WarpJournal.writeUuid(record, warp.getCreatorUuid());
+            WarpJournal.writeUuid(record, warp.getManagerUuid());
+            record.writeUTF(warp.getName());
+            WarpJournal.writeNullableString(record, warp.getDescription());
+            record.writeUTF(warp.getMaterial().name());
+            record.writeInt(warp.getSavedVisits());
+
+            // The stored location is written even
+            // when its world is not loaded.
+            WarpLocation location = warp.getStoredLocation();
+            record.writeBoolean(location != null);
+            if (location != null) {
+                WarpJournal.writeNullableString(record, location.worldName());
+                record.writeInt(location.x());
+                record.writeInt(location.y());
+                record.writeInt(location.z());
+                record.writeFloat(location.pitch());
+                record.writeFloat(location.yaw());
+            }
+        } catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+        return this.append(bytes.toByteArray());
+    }
+
+    /**
+     * Used to append a change to the saved visits of a warp.
+     *
+     * @param identifier The warp's unique identifier.
+     * @param visits     The number of saved visits.
+     * @return This instance.
+     */
+    public @NotNull WarpJournal appendVisits(@NotNull UUID identifier, int visits) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(21);
+        try (DataOutputStream record = new DataOutputStream(bytes)) {
+            record.writeByte(VISITS);
+            WarpJournal.writeUuid(record, identifier);
+            record.writeInt(visits);
+        } catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+        return this.append(bytes.toByteArray());
+    }
+
+    /**
+     * Used to append a warp removal.
+     *
+     * @param identifier The warp's unique identifier.
+     * @return This instance.
+     */
+    public @NotNull WarpJournal appendWarpRemoved(@NotNull UUID identifier) {
+        return this.appendUuids(WARP_REMOVED, identifier, null);
+    }
+
+    /**
+     * Used to append a ban.
+     *
+     * @param ownerUuid  The owner's uuid.
+     * @param playerUuid The banned player's uuid.
+     * @return This instance.
+     */
+    public @NotNull WarpJournal appendBan(@NotNull UUID ownerUuid, @NotNull UUID playerUuid) {
+        return this.appendUuids(BAN, ownerUuid, playerUuid);
+    }
+
+    /**
+     * Used to append an unban.
+     *
+     * @param ownerUuid  The owner's uuid.
+     * @param playerUuid The unbanned player's uuid.
+     * @return This instance.
+     */
+    public @NotNull WarpJournal appendUnBan(@NotNull UUID ownerUuid, @NotNull UUID playerUuid) {
+        return this.appendUuids(UNBAN, ownerUuid, playerUuid);
+    }
+
+    /**
+     * Used to replay every record in the journal.
+     * A log left over from an interrupted compaction is
+     * replayed first. Replay stops at the first record that
+     * is incomplete, too large or fails its checksum.
+     *
+     * @param handler The handler to give the records to.
+     * @return The number of records replayed.
+     */
+    public int replay(@NotNull Handler handler) {
+        return WarpJournal.replay(this.compactingFile, handler)
+                + WarpJournal.replay(this.file, handler);
+    }
+
+    /**
+     * Used to start a compaction.
+     * The active log is moved aside and a new empty log is
+     * started, so records can keep being appended while the
+     * snapshot is written.
+     *
+     * @return True if there was a log to compact.
+     */
+    public synchronized boolean rotate() {
+        this.close();
+
+        // A previous compaction did not finish, so its
+        // log still has to be folded into the snapshot.
+        if (this.compactingFile.exists()) return true;
+
+        if (!this.file.exists() || this.file.length() == 0) return false;
+        return this.file.renameTo(this.compactingFile);
+    }
+
+    /**
+     * Used to finish a compaction once the snapshot
+     * containing the moved aside log has been saved.
+     */
+    public synchronized void finishCompaction() {
+        if (this.compactingFile.exists() && !this.compactingFile.delete()) {
+            Bukkit.getLogger().warning("[CozyWarps] Unable to delete " + this.compactingFile.getName());
+        }
+    }
+
+    /**
+     * Used to close the active log.
+     */
+    public synchronized void close() {
+        if (this.output == null) return;
+        try {
+            this.output.close();
+        } catch (IOException exception) {
+            Bukkit.getLogger().warning("[CozyWarps] Unable to close the journal: " + exception.getMessage());
+        }
+        this.output = null;
+    }
+
+    private @NotNull WarpJournal appendUuids(byte type, @NotNull UUID first, @Nullable UUID second) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(33);
+        try (DataOutputStream record = new DataOutputStream(bytes)) {
+            record.writeByte(type);
+            WarpJournal.writeUuid(record, first);
+            if (second != null) WarpJournal.writeUuid(record, second);
+        } catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+        return this.append(bytes.toByteArray());
+    }
+
+    private synchronized @NotNull WarpJournal append(byte[] record) {
+        CRC32 crc = new CRC32();
+        crc.update(record);
+
+        try {
+            if (this.output == null) {
+                this.file.getParentFile().mkdirs();
+                this.output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(this.file, true)));
+            }
+
+            // Frame the record so a partly written
+            // record can be detected on replay.
+            this.output.writeInt(record.length);
+            this.output.write(record);
+            this.output.writeInt((int) crc.getValue());
+            this.output.flush();
+
+        } catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+        return this;
+    }
+
+    private static int replay(@NotNull File file, @NotNull Handler handler) {
+        if (!file.exists()) return 0;
+
+        int amount = 0;
+        long remaining = file.length();
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            while (true) {
+                int length = input.readInt();
+                remaining -= Integer.BYTES;
+
+                // Check the length before allocating, a torn
+                // length could otherwise ask for gigabytes.
+                if (length < 0 || length > MAX_RECORD_SIZE) {
+                    Bukkit.getLogger().warning("[CozyWarps] Stopped replaying " + file.getName() + " at a corrupt record.");
+                    return amount;
+                }
+
+                // Check if the record runs past the end of the file.
+                if (length > remaining - Integer.BYTES) return amount;
+                remaining -= length + Integer.BYTES;
+
+                byte[] record = new byte[length];
+                input.readFully(record);
+
+                CRC32 crc = new CRC32();
+                crc.update(record);
+                if ((int) crc.getValue() != input.readInt()) {
+                    Bukkit.getLogger().warning("[CozyWarps] Stopped replaying " + file.getName() + " at a corrupt record.");
+                    return amount;
+                }
+
+                WarpJournal.apply(new DataInputStream(new ByteArrayInputStream(record)), handler);
+                amount++;
+            }
+
+        } catch (EOFException exception) {
+            return amount;
+
+        } catch (IOException | IllegalArgumentException exception) {
+            Bukkit.getLogger().warning("[CozyWarps] Stopped replaying " + file.getName() + ": " + exception.getMessage());
+            return amount;
+        }
+    }
+
+    private static void apply(@NotNull DataInputStream record, @NotNull Handler handler) throws IOException {
+        byte type = record.readByte();
+        switch (type) {
+            case WARP -> {
+                Warp warp = new Warp(WarpJournal.readUuid(record))
+                        .setCreatorUuid(WarpJournal.readUuid(record))
+                        .setManagerUuid(WarpJournal.readUuid(record))
+                        .setName(record.readUTF())
+                        .setDescription(WarpJournal.readNullableString(record))
+                        .setMaterialAsString(record.readUTF())
+                        .setVisits(record.readInt());
+
+                if (record.readBoolean()) {
+                    String worldName = WarpJournal.readNullableString(record);
+                    int x = record.readInt();
+                    int y = record.readInt();
+                    int z = record.readInt();
+                    float pitch = record.readFloat();
+                    float yaw = record.readFloat();
+                    if (worldName != null) warp.setStoredLocation(new WarpLocation(worldName, x, y, z, pitch, yaw));
+                }
+
+                handler.onWarp(warp);
+            }
+            case VISITS -> handler.onVisits(WarpJournal.readUuid(record), record.readInt());
+            case WARP_REMOVED -> handler.onWarpRemoved(WarpJournal.readUuid(record));
+            case BAN -> handler.onBan(WarpJournal.readUuid(record), WarpJournal.readUuid(record));
+            case UNBAN -> handler.onUnBan(WarpJournal.readUuid(record), WarpJournal.readUuid(record));
+            default -> throw new IOException("Unknown record type " + type);
+        }
+    }
+
+    private static void writeUuid(@NotNull DataOutputStream output, @NotNull UUID uuid) throws IOException {
+        output.writeLong(uuid.getMostSignificantBits());
+        output.writeLong(uuid.getLeastSignificantBits());
+    }
+
+    private static @NotNull UUID readUuid(@NotNull DataInputStream input) throws IOException {
+        return new UUID(input.readLong(), input.readLong());
+    }
+
+    private static void writeNullableString(@NotNull DataOutputStream output, @Nullable String value) throws IOException {
+        output.writeBoolean(value != null);
+        if (value != null) output.writeUTF(value);
+    }
+
+    private static @Nullable String readNullableString(@NotNull DataInputStream input) throws IOException {
+        if (!input.readBoolean()) return null;
+        return input.readUTF();
+    }
+}
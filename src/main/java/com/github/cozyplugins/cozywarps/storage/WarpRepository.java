@@ -0,0 +1,70 @@
+/*
+ * CozyWarps - Used to create player warps.
+ * Copyright (C) 2024 CozyPlugins
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.github.cozyplugins.cozywarps.storage;
+
+import com.github.cozyplugins.cozywarps.Warp;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Collection;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * Represents where warps are persisted.
+ * Warps are loaded once on startup and then
+ * kept in memory, so a repository only has to
+ * load everything and apply single changes.
+ */
+public interface WarpRepository {
+
+    /**
+     * Used to load every stored warp.
+     *
+     * @param consumer Given each warp as it is loaded.
+     */
+    void loadWarps(@NotNull Consumer<Warp> consumer);
+
+    /**
+     * Used to insert or update a warp.
+     *
+     * @param warp The instance of the warp.
+     */
+    void saveWarp(@NotNull Warp warp);
+
+    /**
+     * Used to save only the visits of a batch of warps.
+     * This is given the saved visits of each warp.
+     *
+     * @param warps The warps with changed visits.
+     */
+    void saveVisits(@NotNull Collection<Warp> warps);
+
+    /**
+     * Used to remove a warp.
+     *
+     * @param identifier The warp's unique identifier.
+     */
+    void removeWarp(@NotNull UUID identifier);
+
+    /**
+     * Used to write any pending changes and
+     * release the repository's resources.
+     */
+    void close();
+}
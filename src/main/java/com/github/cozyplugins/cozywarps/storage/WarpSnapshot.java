@@ -0,0 +1,405 @@
+/*
+ * CozyWarps - Used to create player warps.
+ * Copyright (C) 2024 CozyPlugins
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.github.cozyplugins.cozywarps.storage;
+
+import com.github.cozyplugins.cozywarps.Warp;
+import com.github.cozyplugins.cozywarps.WarpLocation;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+/**
+ * Represents a binary snapshot of the warps, used to
+ * load them faster than parsing the storage file.
+ * <p>
+ * Uuids are stored as two longs, world names and materials
+ * are stored once in a string table and coordinates have a
+ * fixed width. The file ends with a checksum of everything
+ * before it and remembers the size and modified time of the
+ * storage files it was taken with, so it is only used while
+ * the storage files have not changed.
+ */
+public class WarpSnapshot {
+
+    private static final int MAGIC = 0x43575350;
+    private static final int VERSION = 1;
+    private static final int NO_STRING = -1;
+
+    private final @NotNull File file;
+    private final @NotNull Logger logger;
+
+    /**
+     * Represents a warp as it is stored in the snapshot.
+     * The world is kept as a name, so warps in worlds that
+     * are not loaded can still be exported.
+     */
+    private record Entry(@NotNull UUID identifier,
+                         @NotNull UUID creatorUuid,
+                         @NotNull UUID managerUuid,
+                         @NotNull String name,
+                         @Nullable String description,
+                         @NotNull String material,
+                         @Nullable String world,
+                         int x, int y, int z,
+                         float pitch, float yaw,
+                         int visits) {
+
+        private @NotNull Warp toWarp() {
+            Warp warp = new Warp(this.identifier)
+                    .setCreatorUuid(this.creatorUuid)
+                    .setManagerUuid(this.managerUuid)
+                    .setName(this.name)
+                    .setDescription(this.description)
+                    .setMaterialAsString(this.material)
+                    .setVisits(this.visits);
+
+            if (this.world != null) {
+                warp.setStoredLocation(new WarpLocation(this.world, this.x, this.y, this.z, this.pitch, this.yaw));
+            }
+            return warp;
+        }
+
+        /**
+         * Used to get the entry in the same layout
+         * as {@link Warp#convert()}.
+         *
+         * @return The map of values.
+         */
+        private @NotNull Map<String, Object> toMap() {
+            Map<String, Object> location = new LinkedHashMap<>();
+            if (this.world != null) {
+                location.put("x", this.x);
+                location.put("y", this.y);
+                location.put("z", this.z);
+                location.put("pitch", Float.toString(this.pitch));
+                location.put("yaw", Float.toString(this.yaw));
+                location.put("world", this.world);
+            }
+
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("creator", this.creatorUuid.toString());
+            map.put("manager", this.managerUuid.toString());
+            map.put("name", this.name);
+            map.put("description", this.description);
+            map.put("material", this.material);
+            map.put("location", location);
+            map.put("visits", this.visits);
+            return map;
+        }
+    }
+
+    /**
+     * Used to create a warp snapshot.
+     *
+     * @param file   The snapshot file.
+     * @param logger The logger used to report problems.
+     */
+    public WarpSnapshot(@NotNull File file, @NotNull Logger logger) {
+        this.file = file;
+        this.logger = logger;
+    }
+
+    /**
+     * Used to get the snapshot file.
+     *
+     * @return The file.
+     */
+    public @NotNull File getFile() {
+        return this.file;
+    }
+
+    /**
+     * Used to write the snapshot.
+     * The file is written to a temporary file first,
+     * so a valid snapshot is never half replaced.
+     *
+     * @param warps       The warps to write.
+     * @param sourceFiles The storage files the warps match.
+     * @return True if the snapshot was written.
+     */
+    public boolean write(@NotNull Collection<Warp> warps, @NotNull List<File> sourceFiles) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 + warps.size() * 128);
+
+        try (DataOutputStream output = new DataOutputStream(bytes)) {
+            output.writeInt(MAGIC);
+            output.writeInt(VERSION);
+            output.writeLong(WarpSnapshot.getSourceSize(sourceFiles));
+            output.writeLong(WarpSnapshot.getSourceModified(sourceFiles));
+
+            // Collect the repeated strings.
+            List<String> stringList = new ArrayList<>();
+            Map<String, Integer> stringIndexMap = new HashMap<>();
+            for (Warp warp : warps) {
+                WarpSnapshot.index(warp.getMaterial().name(), stringList, stringIndexMap);
+                WarpLocation location = warp.getStoredLocation();
+                if (location != null) WarpSnapshot.index(location.worldName(), stringList, stringIndexMap);
+            }
+
+            output.writeInt(stringList.size());
+            for (String string : stringList) WarpSnapshot.writeString(output, string);
+
+            output.writeInt(warps.size());
+            for (Warp warp : warps) {
+                WarpSnapshot.writeUuid(output, warp.getIdentifier());
+                WarpSnapshot.writeUuid(output, warp.getCreatorUuid());
+                WarpSnapshot.writeUuid(output, warp.getManagerUuid());
+                WarpSnapshot.writeString(output, warp.getName());
+                WarpSnapshot.writeString(output, warp.getDescription());
+                output.writeInt(stringIndexMap.get(warp.getMaterial().name()));
+
+                // The stored location is written even
+                // when its world is not loaded.
+                WarpLocation location = warp.getStoredLocation();
+                boolean hasWorld = location != null;
+                output.writeInt(hasWorld ? stringIndexMap.get(location.worldName()) : NO_STRING);
+                output.writeInt(hasWorld ? location.x() : 0);
+                output.writeInt(hasWorld ? location.y() : 0);
+                output.writeInt(hasWorld ? location.z() : 0);
+                output.writeFloat(hasWorld ? location.pitch() : 0);
+                output.writeFloat(hasWorld ? location.yaw() : 0);
+                output.writeInt(warp.getSavedVisits());
+            }
+        } catch (IOException exception) {
+            this.logger.warning("Unable to create the warp snapshot: " + exception.getMessage());
+            return false;
+        }
+
+        // Add the checksum of everything before it.
+        byte[] data = bytes.toByteArray();
+        CRC32 checksum = new CRC32();
+        checksum.update(data);
+
+        File parent = this.file.getAbsoluteFile().getParentFile();
+        if (parent != null) parent.mkdirs();
+        File temporaryFile = new File(parent, this.file.getName() + ".tmp");
+
+        try {
+            try (OutputStream stream = new BufferedOutputStream(Files.newOutputStream(temporaryFile.toPath()));
+                 DataOutputStream output = new DataOutputStream(stream)) {
+                output.write(data);
+                output.writeLong(checksum.getValue());
+            }
+
+            try {
+                Files.move(temporaryFile.toPath(), this.file.toPath(),
+                        StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException exception) {
+                Files.move(temporaryFile.toPath(), this.file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+            return true;
+
+        } catch (IOException exception) {
+            this.logger.warning("Unable to write the warp snapshot: " + exception.getMessage());
+            temporaryFile.delete();
+            return false;
+        }
+    }
+
+    /**
+     * Used to read the warps from the snapshot.
+     *
+     * @param sourceFiles The storage files the snapshot should match.
+     * @return The warps, or null if the snapshot is missing,
+     * damaged or older than the storage files.
+     */
+    public @Nullable List<Warp> read(@NotNull List<File> sourceFiles) {
+        List<Entry> entries = this.readEntries(sourceFiles);
+        if (entries == null) return null;
+
+        List<Warp> warps = new ArrayList<>(entries.size());
+        for (Entry entry : entries) warps.add(entry.toWarp());
+        return warps;
+    }
+
+    /**
+     * Used to write the snapshot to a yaml file
+     * in the same layout as the storage file,
+     * so it can be read by people.
+     * This can be called off the main thread.
+     *
+     * @param target The yaml file to create.
+     * @return The number of warps exported, or -1
+     * if the snapshot could not be read.
+     */
+    public int exportToYaml(@NotNull File target) {
+        List<Entry> entries = this.readEntries(null);
+        if (entries == null) return -1;
+
+        Map<UUID, Map<String, Object>> changeMap = new LinkedHashMap<>();
+        for (Entry entry : entries) changeMap.put(entry.identifier(), entry.toMap());
+
+        if (target.exists() && !target.delete()) return -1;
+        return new WarpStorageFile(target, this.logger).write(changeMap) ? entries.size() : -1;
+    }
+
+    /**
+     * Used to read the entries in the snapshot.
+     *
+     * @param sourceFiles The storage files the snapshot should
+     *                    match, or null to not check.
+     * @return The entries or null if the snapshot can not be used.
+     */
+    private @Nullable List<Entry> readEntries(@Nullable List<File> sourceFiles) {
+        if (!this.file.exists()) return null;
+
+        byte[] data;
+        try {
+            data = Files.readAllBytes(this.file.toPath());
+        } catch (IOException exception) {
+            this.logger.warning("Unable to read the warp snapshot: " + exception.getMessage());
+            return null;
+        }
+
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(data);
+
+            // Check the checksum before reading anything else.
+            CRC32 checksum = new CRC32();
+            checksum.update(data, 0, data.length - Long.BYTES);
+            if (buffer.getLong(data.length - Long.BYTES) != checksum.getValue()) {
+                this.logger.warning("The warp snapshot is damaged and will not be used.");
+                return null;
+            }
+
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                this.logger.info("The warp snapshot is from another version and will not be used.");
+                return null;
+            }
+
+            long sourceSize = buffer.getLong();
+            long sourceModified = buffer.getLong();
+            if (sourceFiles != null && (sourceSize != WarpSnapshot.getSourceSize(sourceFiles)
+                    || sourceModified != WarpSnapshot.getSourceModified(sourceFiles))) {
+                this.logger.info("The warp snapshot is older than the storage files and will not be used.");
+                return null;
+            }
+
+            String[] strings = new String[buffer.getInt()];
+            for (int index = 0; index < strings.length; index++) strings[index] = WarpSnapshot.readString(buffer);
+
+            int amount = buffer.getInt();
+            List<Entry> entries = new ArrayList<>(amount);
+            for (int index = 0; index < amount; index++) {
+                UUID identifier = WarpSnapshot.readUuid(buffer);
+                UUID creatorUuid = WarpSnapshot.readUuid(buffer);
+                UUID managerUuid = WarpSnapshot.readUuid(buffer);
+                String name = WarpSnapshot.readString(buffer);
+                String description = WarpSnapshot.readString(buffer);
+                String material = strings[buffer.getInt()];
+                int worldIndex = buffer.getInt();
+
+                entries.add(new Entry(
+                        identifier, creatorUuid, managerUuid,
+                        name == null ? "null" : name, description, material,
+                        worldIndex == NO_STRING ? null : strings[worldIndex],
+                        buffer.getInt(), buffer.getInt(), buffer.getInt(),
+                        buffer.getFloat(), buffer.getFloat(),
+                        buffer.getInt()
+                ));
+            }
+            return entries;
+
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException exception) {
+            this.logger.warning("The warp snapshot is damaged and will not be used.");
+            return null;
+        }
+    }
+
+    /**
+     * Used to get the combined size of the storage files.
+     * Missing files are counted as -1, so removing an
+     * empty file still changes the result.
+     *
+     * @param sourceFiles The storage files.
+     * @return The combined size.
+     */
+    private static long getSourceSize(@NotNull List<File> sourceFiles) {
+        long size = 0;
+        for (File sourceFile : sourceFiles) size += sourceFile.exists() ? sourceFile.length() : -1;
+        return size;
+    }
+
+    /**
+     * Used to combine the modified times of the storage files.
+     * A single file gives its own modified time.
+     *
+     * @param sourceFiles The storage files.
+     * @return The combined modified time.
+     */
+    private static long getSourceModified(@NotNull List<File> sourceFiles) {
+        long modified = 0;
+        for (File sourceFile : sourceFiles) modified = modified * 31 + (sourceFile.exists() ? sourceFile.lastModified() : 0);
+        return modified;
+    }
+
+    private static void index(@NotNull String string, @NotNull List<String> stringList, @NotNull Map<String, Integer> stringIndexMap) {
+        if (stringIndexMap.containsKey(string)) return;
+        stringIndexMap.put(string, stringList.size());
+        stringList.add(string);
+    }
+
+    private static void writeUuid(@NotNull DataOutputStream output, @NotNull UUID uuid) throws IOException {
+        output.writeLong(uuid.getMostSignificantBits());
+        output.writeLong(uuid.getLeastSignificantBits());
+    }
+
+    private static @NotNull UUID readUuid(@NotNull ByteBuffer buffer) {
+        return new UUID(buffer.getLong(), buffer.getLong());
+    }
+
+    private static void writeString(@NotNull DataOutputStream output, @Nullable String string) throws IOException {
+        if (string == null) {
+            output.writeInt(NO_STRING);
+            return;
+        }
+        byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+        output.writeInt(bytes.length);
+        output.write(bytes);
+    }
+
+    private static @Nullable String readString(@NotNull ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length == NO_STRING) return null;
+
+        String string = new String(buffer.array(), buffer.position(), length, StandardCharsets.UTF_8);
+        buffer.position(buffer.position() + length);
+        return string;
+    }
+}
@@ -0,0 +1,379 @@
+/*
+ * CozyWarps - Used to create player warps.
+ * Copyright (C) 2024 CozyPlugins
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.github.cozyplugins.cozywarps.storage;
+
+import org.jetbrains.annotations.NotNull;
+import org.yaml.snakeyaml.DumperOptions;
+import org.yaml.snakeyaml.LoaderOptions;
+import org.yaml.snakeyaml.Yaml;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.BiConsumer;
+import java.util.logging.Logger;
+
+/**
+ * Represents the warp storage file, read and written
+ * one warp record at a time instead of as a whole tree.
+ * <p>
+ * Each warp is a top level key, so the file is split into
+ * records by the lines that start at the first column.
+ * Batches of records are parsed in parallel while they are
+ * handed out in file order on the calling thread.
+ * Writing copies every unchanged record as it is and only
+ * converts the records that have changed.
+ */
+public class WarpStorageFile {
+
+    private static final int RECORDS_PER_BATCH = 256;
+    private static final int CHARACTERS_PER_BATCH = 256 * 1024;
+    private static final int MAX_THREADS = 8;
+
+    private final @NotNull File file;
+    private final @NotNull Logger logger;
+
+    /**
+     * Used to create a warp storage file.
+     *
+     * @param file   The yaml file.
+     * @param logger The logger used to report problems.
+     */
+    public WarpStorageFile(@NotNull File file, @NotNull Logger logger) {
+        this.file = file;
+        this.logger = logger;
+    }
+
+    /**
+     * Used to get the yaml file.
+     *
+     * @return The file.
+     */
+    public @NotNull File getFile() {
+        return this.file;
+    }
+
+    /**
+     * Represents something given each warp record
+     * read from a group of storage files.
+     */
+    public interface RecordConsumer {
+
+        /**
+         * Called for each warp record.
+         *
+         * @param fileIndex  The index of the file the record was read from.
+         * @param identifier The warp's identifier.
+         * @param map        The warp's values.
+         */
+        void accept(int fileIndex, @NotNull UUID identifier, @NotNull Map<String, Object> map);
+    }
+
+    /**
+     * Represents a batch of records being parsed.
+     *
+     * @param fileIndex The index of the file the batch is from.
+     * @param future    The parsed records.
+     */
+    private record Batch(int fileIndex, @NotNull Future<Map<Object, Object>> future) {
+    }
+
+    /**
+     * Used to read every warp record in the file.
+     * Records that can not be read are skipped.
+     *
+     * @param consumer Given each warp's identifier and values,
+     *                 in file order on the calling thread.
+     * @return The number of records read.
+     */
+    public int load(@NotNull BiConsumer<UUID, Map<String, Object>> consumer) {
+        return WarpStorageFile.load(List.of(this), (fileIndex, identifier, map) -> consumer.accept(identifier, map));
+    }
+
+    /**
+     * Used to read every warp record in a group of files.
+     * The files share the same parsing threads, so they are
+     * parsed in parallel while the records are still handed
+     * out one file after another on the calling thread.
+     * Records that can not be read are skipped.
+     *
+     * @param files    The files to read.
+     * @param consumer Given each record and the index of its file.
+     * @return The number of records read.
+     */
+    public static int load(@NotNull List<WarpStorageFile> files, @NotNull RecordConsumer consumer) {
+        if (files.isEmpty()) return 0;
+
+        final long startNanos = System.nanoTime();
+        final Logger logger = files.get(0).logger;
+        final int threads = Math.max(1, Math.min(MAX_THREADS, Runtime.getRuntime().availableProcessors()));
+        final ExecutorService executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "CozyWarps Loader");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        // Only a few batches are kept in memory at once.
+        ArrayDeque<Batch> batchQueue = new ArrayDeque<>();
+        int records = 0;
+        long bytes = 0;
+
+        try {
+            for (int fileIndex = 0; fileIndex < files.size(); fileIndex++) {
+                WarpStorageFile storageFile = files.get(fileIndex);
+                if (!storageFile.file.exists()) continue;
+                bytes += storageFile.file.length();
+
+                try (BufferedReader reader = Files.newBufferedReader(storageFile.file.toPath(), StandardCharsets.UTF_8)) {
+                    StringBuilder batch = new StringBuilder();
+                    int batchRecords = 0;
+                    boolean inRecord = false;
+
+                    String line;
+                    while ((line = reader.readLine()) != null) {
+                        if (WarpStorageFile.isTopLevel(line)) {
+                            inRecord = WarpStorageFile.isRecordStart(line);
+                            if (!inRecord) continue;
+
+                            // Start a new batch between records.
+                            if (batchRecords >= RECORDS_PER_BATCH || batch.length() >= CHARACTERS_PER_BATCH) {
+                                batchQueue.add(new Batch(fileIndex, WarpStorageFile.submit(executor, batch.toString())));
+                                batch.setLength(0);
+                                batchRecords = 0;
+                                if (batchQueue.size() >= threads * 2) {
+                                    records += WarpStorageFile.accept(files, batchQueue.poll(), consumer);
+                                }
+                            }
+                            batchRecords++;
+                        }
+                        if (inRecord) batch.append(line).append('\n');
+                    }
+                    if (batchRecords > 0) {
+                        batchQueue.add(new Batch(fileIndex, WarpStorageFile.submit(executor, batch.toString())));
+                    }
+
+                } catch (IOException exception) {
+                    logger.severe("Unable to read " + storageFile.file.getName() + ": " + exception.getMessage());
+                }
+            }
+
+            while (!batchQueue.isEmpty()) records += WarpStorageFile.accept(files, batchQueue.poll(), consumer);
+
+        } finally {
+            executor.shutdownNow();
+        }
+
+        String source = files.size() == 1 ? files.get(0).file.getName() : files.size() + " files";
+        logger.info("Read " + records + " warp records from " + source
+                + " (" + (bytes / 1024) + " KB) in "
+                + (System.nanoTime() - startNanos) / 1000000 + " ms using " + threads + " threads.");
+        return records;
+    }
+
+    /**
+     * Used to write changes to the file. The file is streamed
+     * into a temporary file that then replaces it, so it is never
+     * left half written.
+     *
+     * @param changeMap The changed warps' values, or null
+     *                  for the warps that were removed.
+     * @return True if the changes were written.
+     */
+    public boolean write(@NotNull Map<UUID, Map<String, Object>> changeMap) {
+        Map<String, Map<String, Object>> remainingMap = new LinkedHashMap<>();
+        for (Map.Entry<UUID, Map<String, Object>> entry : changeMap.entrySet()) {
+            remainingMap.put(entry.getKey().toString(), entry.getValue());
+        }
+
+        File parent = this.file.getAbsoluteFile().getParentFile();
+        if (parent != null) parent.mkdirs();
+
+        final File temporaryFile = new File(parent, this.file.getName() + ".tmp");
+        final Yaml yaml = WarpStorageFile.createDumper();
+
+        try (BufferedWriter writer = Files.newBufferedWriter(temporaryFile.toPath(), StandardCharsets.UTF_8)) {
+
+            // Copy the unchanged records and replace the changed ones.
+            if (this.file.exists()) {
+                try (BufferedReader reader = Files.newBufferedReader(this.file.toPath(), StandardCharsets.UTF_8)) {
+                    boolean copying = true;
+
+                    String line;
+                    while ((line = reader.readLine()) != null) {
+                        if (WarpStorageFile.isTopLevel(line)) {
+                            if (!WarpStorageFile.isRecordStart(line)) {
+                                copying = line.startsWith("#");
+                                if (copying) writer.write(line + "\n");
+                                continue;
+                            }
+
+                            String key = WarpStorageFile.getKey(line);
+                            copying = !remainingMap.containsKey(key);
+                            if (!copying) {
+                                Map<String, Object> map = remainingMap.remove(key);
+                                if (map != null) yaml.dump(Collections.singletonMap(key, map), writer);
+                                continue;
+                            }
+                        }
+                        if (copying) writer.write(line + "\n");
+                    }
+                }
+            }
+
+            // Add the new warps to the end.
+            for (Map.Entry<String, Map<String, Object>> entry : remainingMap.entrySet()) {
+                if (entry.getValue() == null) continue;
+                yaml.dump(Collections.singletonMap(entry.getKey(), entry.getValue()), writer);
+            }
+
+        } catch (IOException exception) {
+            this.logger.warning("Unable to write " + this.file.getName() + ": " + exception.getMessage());
+            temporaryFile.delete();
+            return false;
+        }
+
+        try {
+            try {
+                Files.move(temporaryFile.toPath(), this.file.toPath(),
+                        StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException exception) {
+                Files.move(temporaryFile.toPath(), this.file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+            return true;
+
+        } catch (IOException exception) {
+            this.logger.warning("Unable to replace " + this.file.getName() + ": " + exception.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Used to hand out the records of a parsed batch.
+     *
+     * @param files    The files being read.
+     * @param batch    The batch being parsed.
+     * @param consumer The consumer to give each record.
+     * @return The number of records read.
+     */
+    @SuppressWarnings("unchecked")
+    private static int accept(@NotNull List<WarpStorageFile> files,
+                              @NotNull Batch batch,
+                              @NotNull RecordConsumer consumer) {
+
+        final WarpStorageFile storageFile = files.get(batch.fileIndex());
+
+        Map<Object, Object> recordMap;
+        try {
+            recordMap = batch.future().get();
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            return 0;
+        } catch (ExecutionException exception) {
+            storageFile.logger.warning("Skipping unreadable warp records in " + storageFile.file.getName()
+                    + ": " + exception.getCause().getMessage());
+            return 0;
+        }
+        if (recordMap == null) return 0;
+
+        int records = 0;
+        for (Map.Entry<Object, Object> entry : recordMap.entrySet()) {
+            try {
+                if (!(entry.getValue() instanceof Map)) throw new IllegalArgumentException("not a section");
+                consumer.accept(
+                        batch.fileIndex(),
+                        UUID.fromString(String.valueOf(entry.getKey())),
+                        (Map<String, Object>) entry.getValue()
+                );
+                records++;
+            } catch (RuntimeException exception) {
+                storageFile.logger.warning("Skipping the warp record " + entry.getKey()
+                        + " in " + storageFile.file.getName() + ": " + exception.getMessage());
+            }
+        }
+        return records;
+    }
+
+    private static @NotNull Future<Map<Object, Object>> submit(@NotNull ExecutorService executor, @NotNull String text) {
+        return executor.submit(() -> {
+            LoaderOptions options = new LoaderOptions();
+            options.setCodePointLimit(Integer.MAX_VALUE);
+            return new Yaml(options).load(text);
+        });
+    }
+
+    private static @NotNull Yaml createDumper() {
+        DumperOptions options = new DumperOptions();
+        options.setDefaultFlowStyle(DumperOptions.FlowStyle.BLOCK);
+        options.setIndent(2);
+        options.setWidth(Integer.MAX_VALUE);
+        return new Yaml(options);
+    }
+
+    /**
+     * Used to check if a line starts at the first column,
+     * so it is not part of the record above it.
+     *
+     * @param line The line.
+     * @return True if the line is at the top level.
+     */
+    private static boolean isTopLevel(@NotNull String line) {
+        return !line.isEmpty() && !Character.isWhitespace(line.charAt(0));
+    }
+
+    /**
+     * Used to check if a top level line is
+     * the key of a warp record.
+     *
+     * @param line The top level line.
+     * @return True if the line starts a record.
+     */
+    private static boolean isRecordStart(@NotNull String line) {
+        if (line.startsWith("#") || line.startsWith("{") || line.startsWith("---") || line.startsWith("...")) return false;
+        return line.indexOf(':') > 0;
+    }
+
+    /**
+     * Used to get the key from the first line of a record.
+     *
+     * @param line The first line of the record.
+     * @return The unquoted key.
+     */
+    private static @NotNull String getKey(@NotNull String line) {
+        String key = line.substring(0, line.indexOf(':')).trim();
+        if (key.length() >= 2 && (key.charAt(0) == '\'' || key.charAt(0) == '"')) {
+            key = key.substring(1, key.length() - 1);
+        }
+        return key;
+    }
+}
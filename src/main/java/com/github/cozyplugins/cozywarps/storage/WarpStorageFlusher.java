@@ -0,0 +1,317 @@
+/*
+ * CozyWarps - Used to create player warps.
+ * Copyright (C) 2024 CozyPlugins
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.github.cozyplugins.cozywarps.storage;
+
+import com.github.cozyplugins.cozywarps.Warp;
+import org.bukkit.Bukkit;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.scheduler.BukkitTask;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Represents the write behind queue for warp storage.
+ * Changed warps are marked as dirty and then written
+ * to the storage files together in a single save.
+ * <p>
+ * Warps are spread over the shard files by their manager,
+ * so a flush only rewrites the shards that have changes.
+ * Any files after the shards are older files that warps
+ * are moved out of as they are written.
+ * <p>
+ * Once the flusher has been created, the storage
+ * files should only be changed by the flusher.
+ */
+public class WarpStorageFlusher {
+
+    private static final @NotNull Map<String, Object> REMOVED = Collections.emptyMap();
+
+    private final @NotNull List<WarpStorageFile> fileList;
+    private final int shards;
+    private final @NotNull Map<UUID, Map<String, Object>> pendingMap;
+    private final @NotNull Map<UUID, Integer> fileIndexMap;
+    private final @NotNull Map<Integer, Set<UUID>> strayMap;
+    private final @NotNull Object flushLock;
+
+    private @Nullable BukkitTask task;
+
+    /**
+     * Used to create a warp storage flusher
+     * for a single storage file.
+     *
+     * @param warpFile The warp storage file.
+     */
+    public WarpStorageFlusher(@NotNull WarpStorageFile warpFile) {
+        this(List.of(warpFile), 1);
+    }
+
+    /**
+     * Used to create a warp storage flusher.
+     *
+     * @param fileList The shard files, followed by any
+     *                 older files warps should be moved out of.
+     * @param shards   The number of shard files at the
+     *                 start of the list.
+     */
+    public WarpStorageFlusher(@NotNull List<WarpStorageFile> fileList, int shards) {
+        this.fileList = fileList;
+        this.shards = Math.max(1, Math.min(shards, fileList.size()));
+        this.pendingMap = new ConcurrentHashMap<>();
+        this.fileIndexMap = new ConcurrentHashMap<>();
+        this.strayMap = new HashMap<>();
+        this.flushLock = new Object();
+    }
+
+    /**
+     * Used to get the shard a manager's warps are kept in.
+     *
+     * @param managerUuid The manager's uuid.
+     * @return The index of the shard file.
+     */
+    public int getShard(@NotNull UUID managerUuid) {
+        return Math.floorMod(managerUuid.hashCode(), this.shards);
+    }
+
+    /**
+     * Used to record which file a warp was loaded from.
+     * If the warp is in more than one file, the copy in its
+     * manager's shard is kept, as warps are always written
+     * there before they are removed from another file.
+     * The other copy is removed on the next flush.
+     *
+     * @param identifier  The warp's unique identifier.
+     * @param fileIndex   The index of the file.
+     * @param managerUuid The manager in this copy of the warp.
+     * @return False if this copy should be ignored.
+     */
+    public boolean markLoaded(@NotNull UUID identifier, int fileIndex, @NotNull UUID managerUuid) {
+        synchronized (this.flushLock) {
+            Integer previous = this.fileIndexMap.get(identifier);
+            if (previous != null && previous != fileIndex) {
+                if (fileIndex != this.getShard(managerUuid)) {
+                    this.addStray(fileIndex, identifier);
+                    return false;
+                }
+                this.addStray(previous, identifier);
+            }
+            this.fileIndexMap.put(identifier, fileIndex);
+            return true;
+        }
+    }
+
+    /**
+     * Used to check if a loaded warp is in the
+     * shard file its manager belongs to.
+     *
+     * @param identifier  The warp's unique identifier.
+     * @param managerUuid The warp's manager.
+     * @return True if the warp does not need moving.
+     */
+    public boolean isInShard(@NotNull UUID identifier, @NotNull UUID managerUuid) {
+        Integer fileIndex = this.fileIndexMap.get(identifier);
+        return fileIndex == null || fileIndex == this.getShard(managerUuid);
+    }
+
+    /**
+     * Used to check if a file no longer contains any warps.
+     * This should only be used once the warps have been loaded.
+     *
+     * @param fileIndex The index of the file.
+     * @return True if the file is not used.
+     */
+    public boolean isUnused(int fileIndex) {
+        synchronized (this.flushLock) {
+            if (this.strayMap.containsKey(fileIndex)) return false;
+            return !this.fileIndexMap.containsValue(fileIndex);
+        }
+    }
+
+    /**
+     * Used to mark a warp as changed.
+     * The warp is converted straight away, so later
+     * changes to the instance are not written until
+     * it is marked again.
+     *
+     * @param warp The instance of the warp.
+     * @return This instance.
+     */
+    public @NotNull WarpStorageFlusher markDirty(@NotNull Warp warp) {
+        this.pendingMap.put(warp.getIdentifier(), warp.convert().getMap());
+        return this;
+    }
+
+    /**
+     * Used to mark a warp as removed.
+     *
+     * @param identifier The warp's unique identifier.
+     * @return This instance.
+     */
+    public @NotNull WarpStorageFlusher markRemoved(@NotNull UUID identifier) {
+        this.pendingMap.put(identifier, REMOVED);
+        return this;
+    }
+
+    /**
+     * Used to check if there are changes
+     * waiting to be written.
+     *
+     * @return True if there are pending changes.
+     */
+    public boolean hasPending() {
+        synchronized (this.flushLock) {
+            return !this.pendingMap.isEmpty() || !this.strayMap.isEmpty();
+        }
+    }
+
+    /**
+     * Used to write every pending change to the
+     * storage files, rewriting only the files that
+     * have changes. This can be called from any thread.
+     *
+     * @return This instance.
+     */
+    public @NotNull WarpStorageFlusher flush() {
+        synchronized (this.flushLock) {
+            if (this.pendingMap.isEmpty() && this.strayMap.isEmpty()) return this;
+
+            // Take the latest state of each dirty warp.
+            Map<UUID, Map<String, Object>> takenMap = new HashMap<>();
+            for (UUID identifier : this.pendingMap.keySet()) {
+                Map<String, Object> map = this.pendingMap.remove(identifier);
+                if (map == null) continue;
+
+                takenMap.put(identifier, map == REMOVED ? null : map);
+            }
+
+            // Group the changes by the file they belong in.
+            Map<Integer, Map<UUID, Map<String, Object>>> fileChangeMap = new HashMap<>();
+            for (Map.Entry<UUID, Map<String, Object>> entry : takenMap.entrySet()) {
+                Integer current = this.fileIndexMap.get(entry.getKey());
+                Integer target = this.getTarget(entry.getValue());
+
+                if (target != null) {
+                    fileChangeMap.computeIfAbsent(target, index -> new HashMap<>()).put(entry.getKey(), entry.getValue());
+                }
+                if (current != null && !current.equals(target)) {
+                    fileChangeMap.computeIfAbsent(current, index -> new HashMap<>()).put(entry.getKey(), null);
+                }
+            }
+
+            // Remove copies left behind in other files.
+            Map<Integer, Set<UUID>> takenStrayMap = new HashMap<>(this.strayMap);
+            this.strayMap.clear();
+            for (Map.Entry<Integer, Set<UUID>> entry : takenStrayMap.entrySet()) {
+                Map<UUID, Map<String, Object>> changeMap = fileChangeMap.computeIfAbsent(entry.getKey(), index -> new HashMap<>());
+                for (UUID identifier : entry.getValue()) {
+                    if (!changeMap.containsKey(identifier)) changeMap.put(identifier, null);
+                }
+            }
+
+            Set<Integer> failedSet = new HashSet<>();
+            for (Map.Entry<Integer, Map<UUID, Map<String, Object>>> entry : fileChangeMap.entrySet()) {
+                if (!this.fileList.get(entry.getKey()).write(entry.getValue())) failedSet.add(entry.getKey());
+            }
+
+            // Keep the failed changes for the next flush,
+            // unless the warp has been changed again since.
+            for (Map.Entry<UUID, Map<String, Object>> entry : takenMap.entrySet()) {
+                Integer current = this.fileIndexMap.get(entry.getKey());
+                Integer target = this.getTarget(entry.getValue());
+
+                if (target != null && failedSet.contains(target)) {
+                    this.pendingMap.putIfAbsent(entry.getKey(), entry.getValue());
+                    continue;
+                }
+
+                if (target == null) {
+                    this.fileIndexMap.remove(entry.getKey());
+                } else {
+                    this.fileIndexMap.put(entry.getKey(), target);
+                }
+                if (current != null && !current.equals(target) && failedSet.contains(current)) {
+                    this.addStray(current, entry.getKey());
+                }
+            }
+            for (Map.Entry<Integer, Set<UUID>> entry : takenStrayMap.entrySet()) {
+                if (!failedSet.contains(entry.getKey())) continue;
+                for (UUID identifier : entry.getValue()) this.addStray(entry.getKey(), identifier);
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Used to start flushing pending changes
+     * in the background.
+     *
+     * @param plugin        The instance of the plugin.
+     * @param intervalTicks The number of ticks between flushes.
+     * @return This instance.
+     */
+    public @NotNull WarpStorageFlusher start(@NotNull Plugin plugin, long intervalTicks) {
+        this.stop();
+        this.task = Bukkit.getScheduler().runTaskTimerAsynchronously(
+                plugin,
+                this::flush,
+                intervalTicks,
+                intervalTicks
+        );
+        return this;
+    }
+
+    /**
+     * Used to stop the background task and
+     * write any remaining changes.
+     *
+     * @return This instance.
+     */
+    public @NotNull WarpStorageFlusher stop() {
+        if (this.task != null) {
+            this.task.cancel();
+            this.task = null;
+        }
+        return this.flush();
+    }
+
+    /**
+     * Used to get the shard a converted warp belongs in.
+     *
+     * @param map The warp's values, or null if it was removed.
+     * @return The index of the shard file, or null
+     * if the warp was removed.
+     */
+    private @Nullable Integer getTarget(@Nullable Map<String, Object> map) {
+        if (map == null) return null;
+        if (this.shards == 1) return 0;
+        return this.getShard(UUID.fromString(String.valueOf(map.get("manager"))));
+    }
+
+    private void addStray(int fileIndex, @NotNull UUID identifier) {
+        this.strayMap.computeIfAbsent(fileIndex, index -> new HashSet<>()).add(identifier);
+    }
+}
@@ -0,0 +1,643 @@
+/*
+ * CozyWarps - Used to create player warps.
+ * Copyright (C) 2024 CozyPlugins
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.github.cozyplugins.cozywarps.storage;
+
+import com.github.cozyplugins.cozywarps.Warp;
+import com.github.smuddgge.squishyconfiguration.ConfigurationFactory;
+import com.github.smuddgge.squishyconfiguration.interfaces.Configuration;
+import com.github.smuddgge.squishyconfiguration.memory.MemoryConfigurationSection;
+import org.bukkit.Bukkit;
+import org.bukkit.plugin.Plugin;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Represents the yaml file repository.
+ * Warps are kept in storage.yml and bans in bans.yml.
+ * The warps are streamed from the storage file when
+ * they are loaded, so the file is not kept in memory.
+ * <p>
+ * The warps and bans can instead be split into shard files,
+ * chosen by the manager or owner's uuid, so a change only
+ * rewrites one shard. Warps and bans found in the single
+ * files or in shards that no longer exist are moved into
+ * the right shards once {@link #migrate()} is called.
+ * Otherwise they are only read, so the files can be
+ * imported into another storage type unchanged.
+ * <p>
+ * Warp changes are saved straight away by default.
+ * They can instead be saved by the background flusher
+ * or appended to a journal that is compacted into the
+ * yaml files once it grows too large.
+ */
+public class YamlRepository implements WarpRepository, BanRepository {
+
+    private static final @NotNull Pattern SHARD_PATTERN = Pattern.compile("shard-(\\d+)\\.yml");
+
+    private final @NotNull Plugin plugin;
+    private final int shards;
+    private final @NotNull List<WarpStorageFile> warpFileList;
+    private final @NotNull List<Configuration> banConfigList;
+    private final @NotNull Set<Integer> dirtyBanSet;
+    private final @NotNull WarpStorageFlusher warpFlusher;
+
+    private boolean writeBehind;
+    private @Nullable WarpJournal journal;
+    private @Nullable WarpSnapshot snapshot;
+    private @Nullable Supplier<Collection<Warp>> snapshotSupplier;
+    private final @NotNull AtomicBoolean compacting;
+
+    private final @NotNull Map<UUID, Warp> replayedWarpMap;
+    private final @NotNull Map<UUID, Integer> replayedVisitsMap;
+    private final @NotNull Set<UUID> replayedRemovalSet;
+    private boolean migrated;
+    private int movedWarps;
+
+    /**
+     * Used to create a yaml repository that keeps
+     * warps and bans in single files.
+     * The ban file is loaded straight away.
+     *
+     * @param plugin The instance of the plugin.
+     */
+    public YamlRepository(@NotNull Plugin plugin) {
+        this(plugin, 0);
+    }
+
+    /**
+     * Used to create a yaml repository.
+     * The ban files are loaded straight away.
+     *
+     * @param plugin The instance of the plugin.
+     * @param shards The number of shard files to split warps and
+     *               bans into, or 0 to keep them in single files.
+     */
+    public YamlRepository(@NotNull Plugin plugin, int shards) {
+        this.plugin = plugin;
+        this.shards = Math.max(0, shards);
+
+        final File dataFolder = plugin.getDataFolder();
+        final int files = Math.max(1, this.shards);
+
+        // The warp shards, followed by older files to move warps out of.
+        this.warpFileList = new ArrayList<>();
+        if (this.shards == 0) {
+            this.warpFileList.add(new WarpStorageFile(new File(dataFolder, "storage.yml"), plugin.getLogger()));
+        } else {
+            for (int index = 0; index < this.shards; index++) {
+                this.warpFileList.add(new WarpStorageFile(
+                        new File(new File(dataFolder, "warps"), "shard-" + index + ".yml"), plugin.getLogger()
+                ));
+            }
+        }
+        for (File file : this.getOldFiles("storage.yml", "warps")) {
+            this.warpFileList.add(new WarpStorageFile(file, plugin.getLogger()));
+        }
+
+        this.banConfigList = new ArrayList<>();
+        if (this.shards == 0) {
+            this.banConfigList.add(ConfigurationFactory.YAML.create(dataFolder, "bans"));
+        } else {
+            for (int index = 0; index < this.shards; index++) {
+                this.banConfigList.add(ConfigurationFactory.YAML.create(new File(dataFolder, "bans"), "shard-" + index));
+            }
+        }
+        this.banConfigList.parallelStream().forEach(Configuration::load);
+        this.dirtyBanSet = ConcurrentHashMap.newKeySet();
+
+        this.warpFlusher = new WarpStorageFlusher(this.warpFileList, files);
+        this.compacting = new AtomicBoolean(false);
+        this.replayedWarpMap = new LinkedHashMap<>();
+        this.replayedVisitsMap = new HashMap<>();
+        this.replayedRemovalSet = new HashSet<>();
+    }
+
+    /**
+     * Used to move the warps and bans in older files into
+     * the shards they belong in. The bans are moved straight
+     * away and the warps when they are loaded, then the older
+     * files are renamed so they are kept as a backup.
+     *
+     * @return This instance.
+     */
+    public @NotNull YamlRepository migrate() {
+        this.migrated = true;
+        this.migrateBans();
+        return this;
+    }
+
+    /**
+     * Used to check if any warp storage files exist,
+     * without creating a repository.
+     *
+     * @param dataFolder The plugin's data folder.
+     * @return True if there are warp files to load.
+     */
+    public static boolean hasWarpFiles(@NotNull File dataFolder) {
+        if (new File(dataFolder, "storage.yml").exists()) return true;
+
+        File[] shardFiles = new File(dataFolder, "warps").listFiles();
+        if (shardFiles == null) return false;
+
+        for (File file : shardFiles) {
+            if (SHARD_PATTERN.matcher(file.getName()).matches()) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Used to save warp changes in the background
+     * instead of every time a warp changes.
+     *
+     * @param intervalTicks The number of ticks between saves.
+     * @return This instance.
+     */
+    public @NotNull YamlRepository enableWriteBehind(long intervalTicks) {
+        this.writeBehind = true;
+        this.warpFlusher.start(this.plugin, intervalTicks);
+        return this;
+    }
+
+    /**
+     * Used to append changes to a journal instead of
+     * rewriting the yaml files. The journal is replayed
+     * over the yaml files straight away.
+     *
+     * @param compactSize The journal size in bytes that
+     *                    causes a compaction.
+     * @return This instance.
+     */
+    public @NotNull YamlRepository enableJournal(long compactSize) {
+        this.journal = new WarpJournal(this.plugin.getDataFolder());
+
+        int replayed = this.journal.replay(new WarpJournal.Handler() {
+            @Override
+            public void onWarp(@NotNull Warp warp) {
+                replayedRemovalSet.remove(warp.getIdentifier());
+                replayedWarpMap.put(warp.getIdentifier(), warp);
+                warpFlusher.markDirty(warp);
+            }
+
+            @Override
+            public void onVisits(@NotNull UUID identifier, int visits) {
+                Warp warp = replayedWarpMap.get(identifier);
+                if (warp == null) {
+                    replayedVisitsMap.put(identifier, visits);
+                    return;
+                }
+                warp.setVisits(visits);
+                warpFlusher.markDirty(warp);
+            }
+
+            @Override
+            public void onWarpRemoved(@NotNull UUID identifier) {
+                replayedWarpMap.remove(identifier);
+                replayedVisitsMap.remove(identifier);
+                replayedRemovalSet.add(identifier);
+                warpFlusher.markRemoved(identifier);
+            }
+
+            @Override
+            public void onBan(@NotNull UUID ownerUuid, @NotNull UUID playerUuid) {
+                setBanned(playerUuid, ownerUuid, true);
+            }
+
+            @Override
+            public void onUnBan(@NotNull UUID ownerUuid, @NotNull UUID playerUuid) {
+                setBanned(playerUuid, ownerUuid, false);
+            }
+        });
+        this.plugin.getLogger().info("Replayed " + replayed + " journal records.");
+
+        // Check the size of the journal in the background.
+        Bukkit.getScheduler().runTaskTimerAsynchronously(this.plugin, () -> {
+            if (this.journal.getSize() < compactSize) return;
+            this.compactJournal();
+        }, 200, 200);
+        return this;
+    }
+
+    /**
+     * Used to keep a binary snapshot of the warps next to the
+     * storage file. The snapshot is written when the repository
+     * is closed and loaded instead of the storage file while
+     * the storage file has not changed since.
+     *
+     * @param warpSupplier Gives the warps to write when closing.
+     * @return This instance.
+     */
+    public @NotNull YamlRepository enableSnapshot(@NotNull Supplier<Collection<Warp>> warpSupplier) {
+        this.snapshot = new WarpSnapshot(new File(this.plugin.getDataFolder(), "storage.bin"), this.plugin.getLogger());
+        this.snapshotSupplier = warpSupplier;
+        return this;
+    }
+
+    /**
+     * Used to write the binary snapshot to a yaml file,
+     * so it can be read by people.
+     * This can be called off the main thread.
+     *
+     * @param target The yaml file to create.
+     * @return The number of warps exported, or -1 if
+     * there is no snapshot or it could not be read.
+     */
+    public int exportSnapshot(@NotNull File target) {
+        if (this.snapshot == null) return -1;
+        return this.snapshot.exportToYaml(target);
+    }
+
+    @Override
+    public void loadWarps(@NotNull Consumer<Warp> consumer) {
+        final int files = Math.max(1, this.shards);
+        final boolean hasOldFiles = this.warpFileList.size() > files;
+
+        // Use the snapshot when it matches the storage files.
+        // Every warp is in its own shard when a snapshot is taken.
+        List<Warp> snapshotWarps = this.snapshot == null || hasOldFiles ? null : this.snapshot.read(this.getShardFiles());
+        if (snapshotWarps != null) {
+            this.plugin.getLogger().info("Read " + snapshotWarps.size() + " warps from the binary snapshot.");
+            for (Warp warp : snapshotWarps) {
+                this.warpFlusher.markLoaded(
+                        warp.getIdentifier(), this.warpFlusher.getShard(warp.getManagerUuid()), warp.getManagerUuid()
+                );
+                this.acceptLoaded(warp, consumer);
+            }
+        } else {
+            WarpStorageFile.load(this.warpFileList, (fileIndex, identifier, map) -> {
+                Warp warp = new Warp(identifier).convert(new MemoryConfigurationSection(map));
+                if (!this.warpFlusher.markLoaded(identifier, fileIndex, warp.getManagerUuid())) return;
+                this.acceptLoaded(warp, consumer);
+            });
+        }
+
+        this.replayedWarpMap.values().forEach(consumer);
+        this.replayedWarpMap.clear();
+        this.replayedVisitsMap.clear();
+        this.replayedRemovalSet.clear();
+
+        // Write the moved warps to their shards straight
+        // away, so the older files can be put aside.
+        if (this.migrated && (this.movedWarps > 0 || hasOldFiles)) {
+            this.warpFlusher.flush();
+            for (int index = files; index < this.warpFileList.size(); index++) {
+                if (this.warpFlusher.isUnused(index)) YamlRepository.putAside(this.warpFileList.get(index).getFile(), this.plugin);
+            }
+            this.plugin.getLogger().info("Moved " + this.movedWarps + " warps into their storage shards.");
+            this.movedWarps = 0;
+        }
+    }
+
+    /**
+     * Used to give a warp read from storage to the consumer,
+     * unless the journal has replaced or removed it.
+     * When migrating, warps that are not in their
+     * manager's shard are marked to be moved.
+     *
+     * @param warp     The warp read from storage.
+     * @param consumer The consumer.
+     */
+    private void acceptLoaded(@NotNull Warp warp, @NotNull Consumer<Warp> consumer) {
+
+        // Skip warps the journal has replaced or removed.
+        if (this.replayedWarpMap.containsKey(warp.getIdentifier())) return;
+        if (this.replayedRemovalSet.contains(warp.getIdentifier())) return;
+
+        // Apply visits the journal saved after the snapshot.
+        Integer visits = this.replayedVisitsMap.get(warp.getIdentifier());
+        if (visits != null) {
+            warp.setVisits(visits);
+            this.warpFlusher.markDirty(warp);
+        }
+
+        // Check if the warp is in the wrong file.
+        if (this.migrated && !this.warpFlusher.isInShard(warp.getIdentifier(), warp.getManagerUuid())) {
+            this.warpFlusher.markDirty(warp);
+            this.movedWarps++;
+        }
+
+        consumer.accept(warp);
+    }
+
+    @Override
+    public void saveWarp(@NotNull Warp warp) {
+        this.warpFlusher.markDirty(warp);
+
+        if (this.journal != null) {
+            this.journal.appendWarp(warp);
+            return;
+        }
+
+        if (!this.writeBehind) this.warpFlusher.flush();
+    }
+
+    @Override
+    public void saveVisits(@NotNull Collection<Warp> warps) {
+        for (Warp warp : warps) {
+            this.warpFlusher.markDirty(warp);
+            if (this.journal != null) this.journal.appendVisits(warp.getIdentifier(), warp.getSavedVisits());
+        }
+
+        if (this.journal == null && !this.writeBehind) this.warpFlusher.flush();
+    }
+
+    @Override
+    public void removeWarp(@NotNull UUID identifier) {
+        this.warpFlusher.markRemoved(identifier);
+
+        if (this.journal != null) {
+            this.journal.appendWarpRemoved(identifier);
+            return;
+        }
+
+        if (!this.writeBehind) this.warpFlusher.flush();
+    }
+
+    @Override
+    public void loadBans(@NotNull BiConsumer<UUID, UUID> consumer) {
+        for (Configuration banConfig : this.banConfigList) {
+            synchronized (banConfig) {
+                YamlRepository.loadBans(banConfig, consumer);
+            }
+        }
+
+        // Bans that have not been moved are read from the older files.
+        if (this.migrated) return;
+        for (File file : this.getOldFiles("bans.yml", "bans")) {
+            YamlRepository.loadBans(YamlRepository.loadOldFile(file), consumer);
+        }
+    }
+
+    private static void loadBans(@NotNull Configuration banConfig, @NotNull BiConsumer<UUID, UUID> consumer) {
+        for (String key : banConfig.getKeys()) {
+            UUID ownerUuid = UUID.fromString(key);
+            for (String uuidString : banConfig.getListString(key, new ArrayList<>())) {
+                consumer.accept(ownerUuid, UUID.fromString(uuidString));
+            }
+        }
+    }
+
+    @Override
+    public void banPlayer(@NotNull UUID playerUuid, @NotNull UUID ownerUuid) {
+        this.setBanned(playerUuid, ownerUuid, true);
+
+        if (this.journal != null) {
+            this.journal.appendBan(ownerUuid, playerUuid);
+            return;
+        }
+
+        this.saveBansAsynchronously();
+    }
+
+    @Override
+    public void unBanPlayer(@NotNull UUID playerUuid, @NotNull UUID ownerUuid) {
+        this.setBanned(playerUuid, ownerUuid, false);
+
+        if (this.journal != null) {
+            this.journal.appendUnBan(ownerUuid, playerUuid);
+            return;
+        }
+
+        this.saveBansAsynchronously();
+    }
+
+    @Override
+    public void close() {
+
+        // The journal already contains every change,
+        // otherwise write any changes that are still pending.
+        if (this.journal != null) {
+            this.journal.close();
+        } else {
+            this.warpFlusher.stop();
+            this.saveDirtyBans();
+        }
+
+        // Take the snapshot once the storage files are final.
+        if (this.snapshot != null && this.snapshotSupplier != null) {
+            if (this.journal != null) this.warpFlusher.flush();
+            if (!this.warpFlusher.hasPending()) this.snapshot.write(this.snapshotSupplier.get(), this.getShardFiles());
+        }
+    }
+
+    private int getBanShard(@NotNull UUID ownerUuid) {
+        return Math.floorMod(ownerUuid.hashCode(), this.banConfigList.size());
+    }
+
+    /**
+     * Used to get the files warps are kept in,
+     * not including older files warps are moved out of.
+     *
+     * @return The warp shard files.
+     */
+    private @NotNull List<File> getShardFiles() {
+        List<File> list = new ArrayList<>();
+        for (int index = 0; index < Math.max(1, this.shards); index++) list.add(this.warpFileList.get(index).getFile());
+        return list;
+    }
+
+    /**
+     * Used to find the storage files from another layout.
+     * This is the single file when using shards, and any
+     * shard that is not part of the current layout.
+     *
+     * @param singleName The name of the single file.
+     * @param folderName The name of the shard folder.
+     * @return The older files, in shard order.
+     */
+    private @NotNull List<File> getOldFiles(@NotNull String singleName, @NotNull String folderName) {
+        List<File> list = new ArrayList<>();
+
+        File singleFile = new File(this.plugin.getDataFolder(), singleName);
+        if (this.shards > 0 && singleFile.exists()) list.add(singleFile);
+
+        File[] shardFiles = new File(this.plugin.getDataFolder(), folderName).listFiles();
+        if (shardFiles == null) return list;
+
+        Map<Integer, File> shardMap = new TreeMap<>();
+        for (File file : shardFiles) {
+            Matcher matcher = SHARD_PATTERN.matcher(file.getName());
+            if (!matcher.matches()) continue;
+
+            int index = Integer.parseInt(matcher.group(1));
+            if (index >= this.shards) shardMap.put(index, file);
+        }
+        list.addAll(shardMap.values());
+        return list;
+    }
+
+    /**
+     * Used to move the bans in the older ban files
+     * into the shards they belong in.
+     */
+    private void migrateBans() {
+        int owners = 0;
+
+        for (File file : this.getOldFiles("bans.yml", "bans")) {
+            Configuration oldConfig = YamlRepository.loadOldFile(file);
+            for (String key : oldConfig.getKeys()) {
+                for (String uuidString : oldConfig.getListString(key, new ArrayList<>())) {
+                    this.setBanned(UUID.fromString(uuidString), UUID.fromString(key), true);
+                }
+                owners++;
+            }
+            this.saveDirtyBans();
+            YamlRepository.putAside(file, this.plugin);
+        }
+
+        // Move bans that are in the wrong shard.
+        for (int index = 0; index < this.banConfigList.size(); index++) {
+            Configuration banConfig = this.banConfigList.get(index);
+            for (String key : new ArrayList<>(banConfig.getKeys())) {
+                UUID ownerUuid = UUID.fromString(key);
+                if (this.getBanShard(ownerUuid) == index) continue;
+
+                for (String uuidString : banConfig.getListString(key, new ArrayList<>())) {
+                    this.setBanned(UUID.fromString(uuidString), ownerUuid, true);
+                }
+                banConfig.set(key, null);
+                this.dirtyBanSet.add(index);
+                owners++;
+            }
+        }
+
+        if (owners == 0) return;
+        this.saveDirtyBans();
+        this.plugin.getLogger().info("Moved the bans of " + owners + " owners into their storage shards.");
+    }
+
+    /**
+     * Used to load a ban file from another layout.
+     *
+     * @param file The file.
+     * @return The loaded configuration.
+     */
+    private static @NotNull Configuration loadOldFile(@NotNull File file) {
+        String name = file.getName().substring(0, file.getName().length() - ".yml".length());
+        Configuration oldConfig = ConfigurationFactory.YAML.create(file.getParentFile(), name);
+        oldConfig.load();
+        return oldConfig;
+    }
+
+    /**
+     * Used to rename a file that is no longer used,
+     * so it is kept as a backup but not loaded again.
+     *
+     * @param file   The file.
+     * @param plugin The instance of the plugin.
+     */
+    private static void putAside(@NotNull File file, @NotNull Plugin plugin) {
+        if (!file.exists()) return;
+        try {
+            Files.move(file.toPath(), new File(file.getPath() + ".migrated").toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException exception) {
+            plugin.getLogger().warning("Unable to rename " + file.getName() + ": " + exception.getMessage());
+        }
+    }
+
+    /**
+     * Used to change a ban in memory without saving
+     * the ban storage file.
+     * A player is only listed once for each owner.
+     *
+     * @param playerUuid The player's uuid.
+     * @param ownerUuid  The owner's uuid.
+     * @param banned     True if the player should be banned.
+     */
+    private void setBanned(@NotNull UUID playerUuid, @NotNull UUID ownerUuid, boolean banned) {
+        int shard = this.getBanShard(ownerUuid);
+        Configuration banConfig = this.banConfigList.get(shard);
+        synchronized (banConfig) {
+            List<String> list = banConfig.getListString(ownerUuid.toString(), new ArrayList<>());
+            list.remove(playerUuid.toString());
+            if (banned) list.add(playerUuid.toString());
+            banConfig.set(ownerUuid.toString(), list.isEmpty() ? null : list);
+        }
+        this.dirtyBanSet.add(shard);
+    }
+
+    /**
+     * Used to save the ban files that have changed.
+     * Bans are only changed while holding their configuration,
+     * so each save sees a complete set of bans.
+     */
+    private void saveDirtyBans() {
+        for (Integer shard : this.dirtyBanSet) {
+            if (!this.dirtyBanSet.remove(shard)) continue;
+
+            Configuration banConfig = this.banConfigList.get(shard);
+            synchronized (banConfig) {
+                banConfig.save();
+            }
+        }
+    }
+
+    /**
+     * Used to save the changed ban files off the main thread.
+     */
+    private void saveBansAsynchronously() {
+        Bukkit.getScheduler().runTaskAsynchronously(this.plugin, this::saveDirtyBans);
+    }
+
+    /**
+     * Used to fold the journal into new storage snapshots.
+     * This should be called off the main thread.
+     */
+    private void compactJournal() {
+        if (this.journal == null) return;
+        if (!this.compacting.compareAndSet(false, true)) return;
+
+        if (!this.journal.rotate()) {
+            this.compacting.set(false);
+            return;
+        }
+
+        // Every record in the moved aside log was marked
+        // before it was appended, so the flush contains it.
+        this.warpFlusher.flush();
+
+        // Bans are changed on the main thread, so they are saved there.
+        Bukkit.getScheduler().runTask(this.plugin, () -> {
+            this.saveDirtyBans();
+            this.journal.finishCompaction();
+            this.compacting.set(false);
+        });
+    }
+}